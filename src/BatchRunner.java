@@ -0,0 +1,128 @@
+import java.io.PrintStream;
+import java.util.Random;
+
+// generates and solves a batch of mazes without the game, writing one line of results per
+// maze as csv or json
+// only uses the compact maze and cell solvers, so the GUI library is never loaded
+class BatchRunner {
+  int width;
+  int height;
+  int count;
+  // maze i of the batch is generated from seed + i
+  long seed;
+  String generator;
+  String algorithm;
+  String format;
+  PrintStream out;
+  // the paths of mazes already solved, or null to solve every maze
+  SolutionCache cache;
+
+  BatchRunner(int width, int height, int count, long seed, String generator,
+      String algorithm, String format, PrintStream out) {
+    if (!format.equals("csv") && !format.equals("json")) {
+      throw new IllegalArgumentException("Unknown format: " + format);
+    }
+    CompactMaze.checkSize(width, height);
+    this.width = width;
+    this.height = height;
+    this.count = count;
+    this.seed = seed;
+    this.generator = generator;
+    this.algorithm = algorithm;
+    this.format = format;
+    this.out = out;
+    this.cache = null;
+  }
+
+  // EFFECT: answer mazes already solved from the cache, keeping the paths of the rest in
+  //         it, and return this runner
+  BatchRunner useCache(SolutionCache cache) {
+    this.cache = cache;
+    return this;
+  }
+
+  // EFFECT: generate and solve every maze in the batch, printing the result of each
+  void run() {
+    IMazeGenerator gen = Runner.makeGenerator(this.generator);
+    this.printHeader();
+    for (int i = 0; i < this.count; i++) {
+      long start = System.nanoTime();
+      GenerationPhaseEvent phase = GenerationPhaseEvent.start(this.generator, "generate",
+          this.width, this.height);
+      IMaze maze = gen.generate(this.width, this.height, new Random(this.seed + i));
+      phase.commit();
+      long generateNanos = System.nanoTime() - start;
+      if (Metrics.ENABLED) {
+        Metrics.REGISTRY.recordPhase(this.generator, "generate", generateNanos);
+      }
+      this.solve(i, maze, generateNanos);
+    }
+    this.out.flush();
+  }
+
+  // EFFECT: solve a maze opened from a file instead of generating one, printing its result
+  //         with the time spent opening it as its generate time
+  void runLoaded(IMaze maze, long openNanos) {
+    this.printHeader();
+    this.solve(0, maze, openNanos);
+    this.out.flush();
+  }
+
+  // EFFECT: print the names of the columns if the results are csv
+  void printHeader() {
+    if (this.format.equals("csv")) {
+      this.out.println("maze,seed,width,height,generator,algorithm,solution_length,expanded,"
+          + "generate_nanos,solve_nanos");
+    }
+  }
+
+  // EFFECT: solve the given maze of the batch from its first cell to its last and print
+  //         the result, taking the path from the cache if the maze has been solved before
+  void solve(int index, IMaze maze, long generateNanos) {
+    long start = System.nanoTime();
+    long fingerprint = this.cache == null ? 0 : SolutionCache.fingerprint(maze);
+    if (this.cache != null) {
+      int[] cached = this.cache.get(maze, fingerprint, 0, maze.cellCount() - 1);
+      if (cached != null) {
+        this.report(index, this.algorithm + ":cache", cached.length, 0, generateNanos,
+            System.nanoTime() - start);
+        return;
+      }
+    }
+    SolveEvent event = SolveEvent.start(this.algorithm, maze.width(), maze.height());
+    ICellSolver solver = Runner.makeSolver(this.algorithm, maze, 0, maze.cellCount() - 1);
+    int[] path = solver.solve();
+    event.finish(path, solver.expanded());
+    long solveNanos = System.nanoTime() - start;
+    if (this.cache != null && path != null) {
+      this.cache.put(fingerprint, maze.width(), path);
+    }
+    if (Metrics.ENABLED) {
+      Metrics.REGISTRY.recordSolve(this.algorithm, solver.expanded(), solveNanos,
+          path != null);
+    }
+    // a race is reported with the solver that won it, and a cached path with the cache
+    String algorithm = this.algorithm;
+    if (solver instanceof RaceSolver) {
+      algorithm = algorithm + ":" + ((RaceSolver) solver).winner;
+    }
+    this.report(index, algorithm, path == null ? -1 : path.length, solver.expanded(),
+        generateNanos, solveNanos);
+  }
+
+  // EFFECT: print the result of solving one maze with the given algorithm
+  void report(int index, String algorithm, int length, int expanded, long generateNanos,
+      long solveNanos) {
+    if (this.format.equals("csv")) {
+      this.out.println(index + "," + (this.seed + index) + "," + this.width + ","
+          + this.height + "," + this.generator + "," + algorithm + "," + length + ","
+          + expanded + "," + generateNanos + "," + solveNanos);
+    } else {
+      this.out.println("{\"maze\":" + index + ",\"seed\":" + (this.seed + index)
+          + ",\"width\":" + this.width + ",\"height\":" + this.height
+          + ",\"generator\":\"" + this.generator + "\",\"algorithm\":\"" + algorithm
+          + "\",\"solution_length\":" + length + ",\"expanded\":" + expanded
+          + ",\"generate_nanos\":" + generateNanos + ",\"solve_nanos\":" + solveNanos + "}");
+    }
+  }
+}
@@ -0,0 +1,145 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+// a small benchmark harness for each phase of generating and solving mazes of several
+// sizes, reporting the throughput and bytes allocated per operation
+// every maze comes from a fixed seed so runs can be compared against each other
+class Benchmarks {
+  static final long SEED = 42;
+
+  // each size is {width, height}
+  int[][] sizes;
+  long warmupNanos;
+  long measureNanos;
+  PrintStream out;
+  // keeps the result of every operation alive so the JIT cannot remove the work
+  long sink;
+
+  Benchmarks(int[][] sizes, long warmupNanos, long measureNanos, PrintStream out) {
+    this.sizes = sizes;
+    this.warmupNanos = warmupNanos;
+    this.measureNanos = measureNanos;
+    this.out = out;
+    this.sink = 0;
+  }
+
+  // the sizes in a list such as "10x10,100x100"
+  static int[][] parseSizes(String sizes) {
+    String[] parts = sizes.split(",");
+    int[][] parsed = new int[parts.length][];
+    for (int i = 0; i < parts.length; i++) {
+      String[] dims = parts[i].trim().split("x");
+      if (dims.length != 2) {
+        throw new IllegalArgumentException("Sizes must look like 10x10: " + parts[i]);
+      }
+      parsed[i] = new int[] {Integer.parseInt(dims[0]), Integer.parseInt(dims[1])};
+    }
+    return parsed;
+  }
+
+  // EFFECT: run every benchmark at every size, printing one line per benchmark
+  void run() {
+    this.out.println(String.format("%-16s %11s %14s %14s %16s",
+        "benchmark", "size", "ops/s", "ms/op", "bytes/op"));
+    for (int[] size : this.sizes) {
+      int width = size[0];
+      int height = size[1];
+      GridKruskal grid = new GridKruskal(width, height);
+      int[] order = grid.shuffledEdges(new Random(SEED));
+      CompactMaze maze = new KruskalGenerator().generate(width, height, new Random(SEED));
+      MazeNodes graph = new MazeNodes(maze, 1);
+      int target = maze.cellCount() - 1;
+      JunctionGraph junctions = new JunctionGraph(maze);
+      MazeTree tree = new MazeTree(maze);
+      // a thousand queries from a few shared starts
+      Random rand = new Random(SEED);
+      int[] starts = new int[1000];
+      int[] targets = new int[1000];
+      for (int i = 0; i < starts.length; i++) {
+        starts[i] = rand.nextInt(Math.min(maze.cellCount(), 10));
+        targets[i] = rand.nextInt(maze.cellCount());
+      }
+
+      this.bench("shuffle", width, height,
+          () -> grid.shuffledEdges(new Random(SEED)).length);
+      this.bench("kruskal.run", width, height,
+          () -> new GridKruskal(width, height).run(order).length);
+      this.bench("wiring", width, height,
+          () -> new MazeNodes(maze, 1).edges.size());
+      this.bench("gen.kruskal", width, height,
+          () -> new KruskalGenerator().generate(width, height, new Random(SEED)).walls.length);
+      this.bench("gen.eller", width, height,
+          () -> new EllerGenerator().generate(width, height, new Random(SEED)).walls.length);
+      this.bench("solve.bfs", width, height,
+          () -> new CellBfs(maze, 0, target).solve().length);
+      this.bench("solve.dfs", width, height,
+          () -> new CellDfs(maze, 0, target).solve().length);
+      this.bench("solve.astar", width, height,
+          () -> new CellAStar(maze, 0, target).solve().length);
+      this.bench("junction.build", width, height,
+          () -> new JunctionGraph(maze).junctionCount());
+      this.bench("solve.junction", width, height,
+          () -> new JunctionSearch(junctions, 0, target, false).solve().length);
+      this.bench("tree.build", width, height,
+          () -> new MazeTree(maze).depths[target]);
+      this.bench("tree.path", width, height,
+          () -> tree.path(0, target).length);
+      this.bench("batch.1000", width, height,
+          () -> new BatchQueries(maze).solve(starts, targets, false).distances.length);
+      this.bench("nodes.bfs", width, height,
+          () -> this.solveNodes(new Bfs(graph.nodes.get(0), graph.nodes.get(target))));
+      this.bench("nodes.dfs", width, height,
+          () -> this.solveNodes(new Dfs(graph.nodes.get(0), graph.nodes.get(target))));
+      this.bench("nodes.astar", width, height,
+          () -> this.solveNodes(new AStar(graph.nodes.get(0), graph.nodes.get(target))));
+    }
+    this.out.println("(sink " + this.sink + ")");
+  }
+
+  // step the node search until it reaches its target, returning the steps it took
+  int solveNodes(SearchAlg alg) {
+    int steps = 1;
+    while (!alg.next().equals(alg.to)) {
+      steps++;
+    }
+    return steps;
+  }
+
+  // EFFECT: warm up then time the operation, printing its throughput and allocation
+  void bench(String name, int width, int height, IntSupplier op) {
+    this.repeat(op, this.warmupNanos);
+    long allocatedBefore = this.allocatedBytes();
+    long start = System.nanoTime();
+    long ops = this.repeat(op, this.measureNanos);
+    long elapsed = System.nanoTime() - start;
+    long allocated = this.allocatedBytes() - allocatedBefore;
+
+    this.out.println(String.format("%-16s %11s %14.1f %14.3f %16s",
+        name, width + "x" + height, ops * 1e9 / elapsed, elapsed / 1e6 / ops,
+        allocatedBefore < 0 ? "n/a" : Long.toString(allocated / ops)));
+  }
+
+  // run the operation until the time is up, at least once, returning how many times it ran
+  long repeat(IntSupplier op, long nanos) {
+    long ops = 0;
+    long end = System.nanoTime() + nanos;
+    do {
+      this.sink += op.getAsInt();
+      ops++;
+    } while (System.nanoTime() < end);
+    return ops;
+  }
+
+  // the bytes allocated by this thread so far, or -1 if the JVM cannot tell
+  long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    } else {
+      return -1;
+    }
+  }
+}
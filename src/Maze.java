@@ -1,15 +1,35 @@
 import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javalib.impworld.WorldScene;
 import javalib.worldimages.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import tester.*;
 
 // class to run maze or call tester, written after the fact to enable jar creation
 // calling with argument test will run tests
 class Runner {
   private enum ArgType {
-    height, width, none
+    height, width, generator, output, count, seed, algorithm, format, sizes, save, load, steps,
+    budget, metrics, metricsPort, pool, poolMemory, cache, none
   }
   
   public static void main(String[] argv) {
@@ -19,6 +39,26 @@ class Runner {
     } else {
       int width = 100;
       int height = 60;
+      String generator = "kruskal";
+      String output = null;
+      boolean headless = false;
+      boolean showPath = false;
+      int count = 1;
+      long seed = new Random().nextLong();
+      String algorithm = "astar";
+      String format = "csv";
+      boolean bench = false;
+      String sizes = "10x10,100x100,500x500,1000x1000";
+      String save = null;
+      String load = null;
+      int steps = 1;
+      long budget = 0;
+      boolean instant = false;
+      String metrics = null;
+      int metricsPort = 0;
+      int pool = 0;
+      long poolMemory = 256;
+      long cache = 0;
       ArgType current = ArgType.none;
       for (String arg : argv) {
         switch (current) {
@@ -30,6 +70,70 @@ class Runner {
           width = Integer.parseInt(arg);
           current = ArgType.none;
           break;
+        case generator:
+          generator = arg;
+          current = ArgType.none;
+          break;
+        case output:
+          output = arg;
+          current = ArgType.none;
+          break;
+        case count:
+          count = Integer.parseInt(arg);
+          current = ArgType.none;
+          break;
+        case seed:
+          seed = Long.parseLong(arg);
+          current = ArgType.none;
+          break;
+        case algorithm:
+          algorithm = arg;
+          current = ArgType.none;
+          break;
+        case format:
+          format = arg;
+          current = ArgType.none;
+          break;
+        case sizes:
+          sizes = arg;
+          current = ArgType.none;
+          break;
+        case save:
+          save = arg;
+          current = ArgType.none;
+          break;
+        case load:
+          load = arg;
+          current = ArgType.none;
+          break;
+        case steps:
+          steps = Integer.parseInt(arg);
+          current = ArgType.none;
+          break;
+        case budget:
+          budget = Long.parseLong(arg) * 1000000L;
+          current = ArgType.none;
+          break;
+        case metrics:
+          metrics = arg;
+          current = ArgType.none;
+          break;
+        case metricsPort:
+          metricsPort = Integer.parseInt(arg);
+          current = ArgType.none;
+          break;
+        case pool:
+          pool = Integer.parseInt(arg);
+          current = ArgType.none;
+          break;
+        case poolMemory:
+          poolMemory = Long.parseLong(arg);
+          current = ArgType.none;
+          break;
+        case cache:
+          cache = Long.parseLong(arg);
+          current = ArgType.none;
+          break;
         case none:
           switch (arg) {
             case "-h":
@@ -40,12 +144,238 @@ class Runner {
             case "--width":
               current = ArgType.width;
               break;
+            case "-g":
+            case "--generator":
+              current = ArgType.generator;
+              break;
+            case "-o":
+            case "--output":
+              current = ArgType.output;
+              break;
+            case "--headless":
+              headless = true;
+              current = ArgType.none;
+              break;
+            case "--path":
+              showPath = true;
+              current = ArgType.none;
+              break;
+            case "-n":
+            case "--count":
+              current = ArgType.count;
+              break;
+            case "-s":
+            case "--seed":
+              current = ArgType.seed;
+              break;
+            case "-a":
+            case "--algorithm":
+              current = ArgType.algorithm;
+              break;
+            case "-f":
+            case "--format":
+              current = ArgType.format;
+              break;
+            case "--bench":
+              bench = true;
+              current = ArgType.none;
+              break;
+            case "--sizes":
+              current = ArgType.sizes;
+              break;
+            case "--save":
+              current = ArgType.save;
+              break;
+            case "--load":
+              current = ArgType.load;
+              break;
+            case "--steps":
+              current = ArgType.steps;
+              break;
+            case "--budget":
+              current = ArgType.budget;
+              break;
+            case "--instant":
+              instant = true;
+              current = ArgType.none;
+              break;
+            case "--metrics":
+              current = ArgType.metrics;
+              break;
+            case "--metrics-port":
+              current = ArgType.metricsPort;
+              break;
+            case "--pool":
+              current = ArgType.pool;
+              break;
+            case "--pool-memory":
+              current = ArgType.poolMemory;
+              break;
+            case "--cache":
+              current = ArgType.cache;
+              break;
             default:
               current = ArgType.none;
           }
         }
       }
-      new MazeGenerator(width, height, new Random()).bigBang(1500, 800, 0.01);
+      
+      if (metrics != null || metricsPort != 0) {
+        Runner.startMetrics(metrics, metricsPort);
+      }
+      SolutionCache solutions = cache > 0 ? new SolutionCache(cache << 20) : null;
+      if (bench) {
+        new Benchmarks(Benchmarks.parseSizes(sizes), 1000000000L, 2000000000L,
+            System.out).run();
+      } else if (load != null) {
+        Runner.loadMaze(load, headless, algorithm, format, steps, budget, instant,
+            solutions);
+      } else if (headless) {
+        new BatchRunner(width, height, count, seed, generator, algorithm, format,
+            System.out).useCache(solutions).run();
+      } else if (save != null) {
+        Runner.saveMaze(width, height, generator, seed, algorithm, save);
+      } else if (output != null) {
+        Runner.writeMaze(width, height, generator, seed, output, showPath ? algorithm : null);
+      } else {
+        MazeGenerator world = new MazeGenerator(width, height, new Random(),
+            Runner.makeGenerator(generator)).animate(steps, budget, instant)
+            .useCache(solutions);
+        if (pool > 0) {
+          world.usePool(new MazePool(pool, poolMemory << 20, new Random()));
+        }
+        world.bigBang(1500, 800, 0.01);
+      }
+    }
+  }
+  
+  // EFFECT: turn metrics on, writing them to the file when the program exits if it is not
+  //         null, and serving them on the port until then if it is not 0
+  //         this must run before anything reads Metrics.ENABLED
+  static void startMetrics(String file, int port) {
+    System.setProperty("maze.metrics", "true");
+    if (file != null) {
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          Metrics.REGISTRY.dump(Paths.get(file));
+        } catch (IOException e) {
+          System.err.println("Could not write " + file + ": " + e.getMessage());
+        }
+      }));
+    }
+    if (port != 0) {
+      try {
+        Metrics.REGISTRY.serve(port);
+      } catch (IOException e) {
+        System.err.println("Could not serve metrics on port " + port + ": " + e.getMessage());
+      }
+    }
+  }
+  
+  // the maze generator with the given name
+  static IMazeGenerator makeGenerator(String name) {
+    switch (name) {
+      case "kruskal":
+        return new KruskalGenerator();
+      case "eller":
+        return new EllerGenerator();
+      case "tiled":
+        return new TiledGenerator(64);
+      case "boruvka":
+        return new BoruvkaGenerator();
+      default:
+        throw new IllegalArgumentException("Unknown generator: " + name);
+    }
+  }
+  
+  // a solver with the given name for the path between two cells of the maze
+  static ICellSolver makeSolver(String name, IMaze maze, int from, int to) {
+    switch (name) {
+      case "bfs":
+        return new CellBfs(maze, from, to);
+      case "dfs":
+        return new CellDfs(maze, from, to);
+      case "astar":
+        return new CellAStar(maze, from, to);
+      case "bibfs":
+      case "bibfs-parallel":
+        return new CellBidirectional(new CellBfs(maze, from, to), new CellBfs(maze, to, from),
+            name.endsWith("-parallel"));
+      case "biastar":
+      case "biastar-parallel":
+        return new CellBidirectional(new CellAStar(maze, from, to),
+            new CellAStar(maze, to, from), name.endsWith("-parallel"));
+      case "junction":
+        return new JunctionSearch(new JunctionGraph(maze), from, to, false);
+      case "junction-astar":
+        return new JunctionSearch(new JunctionGraph(maze), from, to, true);
+      case "tree":
+        return new TreeSolver(new MazeTree(maze), from, to);
+      case "race":
+        return new RaceSolver(maze, from, to);
+      default:
+        throw new IllegalArgumentException("Unknown algorithm: " + name);
+    }
+  }
+  
+  // EFFECT: write a new maze to the given file as ascii art or an image without opening
+  //         the game, marking the path the given algorithm finds if it is not null, and
+  //         otherwise streaming it a row at a time when the generator allows it
+  static void writeMaze(int width, int height, String generator, long seed, String output,
+      String algorithm) {
+    IMazeGenerator gen = Runner.makeGenerator(generator);
+    try {
+      if (algorithm == null && gen instanceof EllerGenerator) {
+        MazeExport.write(width, height,
+            sink -> ((EllerGenerator) gen).stream(width, height, new Random(seed), sink),
+            null, Paths.get(output));
+      } else {
+        CompactMaze maze = gen.generate(width, height, new Random(seed));
+        int[] path = algorithm == null ? null
+            : Runner.makeSolver(algorithm, maze, 0, maze.cellCount() - 1).solve();
+        MazeExport.write(maze, path, Paths.get(output));
+      }
+    } catch (IOException e) {
+      System.err.println("Could not write " + output + ": " + e.getMessage());
+    }
+  }
+  
+  // EFFECT: generate a maze from the seed, solve it with the given algorithm, and save both
+  //         to the given binary maze file without opening the game
+  static void saveMaze(int width, int height, String generator, long seed, String algorithm,
+      String file) {
+    IMazeGenerator gen = Runner.makeGenerator(generator);
+    CompactMaze maze = gen.generate(width, height, new Random(seed));
+    int[] solution = Runner.makeSolver(algorithm, maze, 0, maze.cellCount() - 1).solve();
+    try {
+      MazeFile.write(Paths.get(file), maze, seed, gen.name(), solution);
+    } catch (IOException e) {
+      System.err.println("Could not write " + file + ": " + e.getMessage());
+    }
+  }
+  
+  // EFFECT: open the binary maze file, then either solve it and print the result like a
+  //         headless batch, or play it in the game animated at the given speed
+  static void loadMaze(String file, boolean headless, String algorithm, String format,
+      int steps, long budget, boolean instant, SolutionCache solutions) {
+    long start = System.nanoTime();
+    MappedMaze maze;
+    try {
+      maze = new MappedMaze(Paths.get(file));
+    } catch (IOException e) {
+      System.err.println("Could not read " + file + ": " + e.getMessage());
+      return;
+    }
+    if (headless) {
+      // a solution saved with the maze answers the solve
+      if (solutions != null) {
+        solutions.putSaved(maze, SolutionCache.fingerprint(maze));
+      }
+      new BatchRunner(maze.width, maze.height, 1, maze.seed, maze.generator, algorithm, format,
+          System.out).useCache(solutions).runLoaded(maze, System.nanoTime() - start);
+    } else {
+      new MazeGenerator(maze, new Random()).animate(steps, budget, instant).useCache(solutions)
+          .bigBang(1500, 800, 0.01);
     }
   }
 }
@@ -57,8 +387,6 @@ class Node {
   int size;
   ArrayList<Node> pathTo = new ArrayList<Node>();
   
-  boolean seen;
-  
   boolean topConnected = false;
   boolean bottomConnected = false;
   boolean leftConnected = false;
@@ -77,7 +405,6 @@ class Node {
     this.col = col;
     this.state = 0;
     this.size = size;
-    this.seen = false;
   }
   
   // default size is 50 for most tests
@@ -102,52 +429,32 @@ class Node {
     this.state = state;
   }
   
-  // TODO test
-  // does this node only have explored neighbors
-  boolean onlySeenNeighbors() {
-    for (Node n : this.pathTo) {
-      if (!n.seen) {
-        return false;
-      }
-    }
-    
-    return true;
+  // the color this node is drawn in for its state
+  Color stateColor() {
+    return Node.colorOf(this.state);
   }
   
-  // draws a square representing this node and any appropriate walls
-  WorldImage drawNode() {
-    Color stateColor;
-    
-    if (this.seen) {
-      stateColor = Color.getHSBColor(0, 100, 76);
-    } else {
-      stateColor = Color.lightGray;
-    }
-    
-    switch (this.state) {
-      case 0:
-        stateColor = Color.lightGray;
-        break;
+  // the color a cell is drawn in for the given state
+  static Color colorOf(int state) {
+    switch (state) {
       case 1:
-        stateColor = Color.getHSBColor(0, 100, 76);
-        break;
+        return Color.getHSBColor(0, 100, 76);
       case 2:
-        stateColor = Color.getHSBColor(0, 78, 29);
-        break;
+        return Color.getHSBColor(0, 78, 29);
       case 3:
-        stateColor = Color.green;
-        break;
+        return Color.green;
       case 4:
-        stateColor = Color.blue;
-        break;
+        return Color.blue;
       default:
-        stateColor = Color.lightGray;
+        return Color.lightGray;
     }
- 
-    
+  }
+  
+  // draws a square representing this node and any appropriate walls
+  WorldImage drawNode() {
     int s = this.size;
     
-    WorldImage base = new RectangleImage(s, s, OutlineMode.SOLID, stateColor);
+    WorldImage base = new RectangleImage(s, s, OutlineMode.SOLID, this.stateColor());
     if (!this.bottomConnected) {
       base = new OverlayImage((new RectangleImage(s, 2,
                               OutlineMode.SOLID, Color.black)).movePinhole(0,
@@ -176,25 +483,34 @@ class Node {
   void connect(ArrayList<Edge> edgeList) {
     for (Edge e : edgeList) {
       if (e.contains(this)) {
-        this.pathTo.add(e.getOther(this));
+        this.attach(e.getOther(this));
       }
     }
-    
-    for (Node n : this.pathTo) {
-      if (n.row > this.row) {
-        this.bottomConnected = true;
-        this.bottom = n;
-      } else if (n.row < this.row) {
-        this.topConnected = true;
-        this.top = n;
-      }
-      if (n.col > this.col) {
-        this.rightConnected = true;
-        this.right = n;
-      } else if (n.col < this.col) {
-        this.leftConnected = true;
-        this.left = n;
-      }
+  }
+  
+  // EFFECT: connect this node and the given adjacent node to each other
+  void link(Node other) {
+    this.attach(other);
+    other.attach(this);
+  }
+  
+  // EFFECT: add the given adjacent node to the pathTo field
+  //         and open the side of this node that it is on
+  void attach(Node n) {
+    this.pathTo.add(n);
+    if (n.row > this.row) {
+      this.bottomConnected = true;
+      this.bottom = n;
+    } else if (n.row < this.row) {
+      this.topConnected = true;
+      this.top = n;
+    }
+    if (n.col > this.col) {
+      this.rightConnected = true;
+      this.right = n;
+    } else if (n.col < this.col) {
+      this.leftConnected = true;
+      this.left = n;
     }
   }
   
@@ -265,6 +581,11 @@ class Edge {
     return this.one.equals(n) || this.two.equals(n);
   }
   
+  // EFFECT: connect the two nodes of this edge to each other
+  void link() {
+    this.one.link(this.two);
+  }
+  
   // Given one side of the edge, returns the other
   Node getOther(Node n) {
     if (this.one.equals(n)) {
@@ -417,6 +738,8 @@ class ExamplesKruskal {
   
   MazeGenerator testWorld;
   
+  CompactMaze compact;
+  
   void initData() {
     this.n1 = new Node(1, 1);
     this.n1Again = new Node(1, 1);
@@ -465,6 +788,17 @@ class ExamplesKruskal {
     this.astarTest = new AStar(n1, n9);
     
     this.testWorld = new MazeGenerator(3, 3, new Random(0));
+    
+    // the minimum spanning tree as cells numbered from 0
+    this.compact = new CompactMaze(3, 3);
+    this.compact.carve(0, 1);
+    this.compact.carve(1, 2);
+    this.compact.carve(0, 3);
+    this.compact.carve(3, 4);
+    this.compact.carve(4, 5);
+    this.compact.carve(3, 6);
+    this.compact.carve(6, 7);
+    this.compact.carve(7, 8);
   }
   
   // test node equals
@@ -515,6 +849,882 @@ class ExamplesKruskal {
     t.checkExpect(this.testMaze1.run(), this.minimumSpanningTree);
   }
   
+  // test union find over dense cell indices
+  void testUnionFind(Tester t) {
+    UnionFind sets = new UnionFind(4);
+    t.checkExpect(sets.find(2), 2);
+    t.checkExpect(sets.union(0, 1), true);
+    t.checkExpect(sets.union(2, 3), true);
+    t.checkExpect(sets.union(1, 0), false);
+    t.checkExpect(sets.find(0), sets.find(1));
+    t.checkFail(sets.find(0), sets.find(3));
+    t.checkExpect(sets.union(1, 3), true);
+    t.checkExpect(sets.find(0), sets.find(2));
+  }
+
+  // test the grid kruskal edge ids
+  void testGridEdges(Tester t) {
+    GridKruskal grid = new GridKruskal(3, 3);
+    t.checkExpect(grid.edgeCount(), 12);
+    t.checkExpect(grid.cellOne(0), 0);
+    t.checkExpect(grid.cellTwo(0), 1);
+    t.checkExpect(grid.cellOne(3), 4);
+    t.checkExpect(grid.cellTwo(3), 5);
+    t.checkExpect(grid.cellOne(6), 0);
+    t.checkExpect(grid.cellTwo(6), 3);
+    t.checkExpect(grid.cellOne(11), 5);
+    t.checkExpect(grid.cellTwo(11), 8);
+    t.checkExpect(new GridKruskal(1, 3).cellTwo(1), 2);
+  }
+  
+  // test the random edge order
+  void testShuffledEdges(Tester t) {
+    GridKruskal grid = new GridKruskal(3, 3);
+    int[] order = grid.shuffledEdges(new Random(0));
+    t.checkExpect(order, grid.shuffledEdges(new Random(0)));
+    int[] sorted = Arrays.copyOf(order, order.length);
+    Arrays.sort(sorted);
+    t.checkExpect(sorted, new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11});
+  }
+  
+  // test the grid kruskal engine
+  void testGridKruskal(Tester t) {
+    t.checkExpect(new GridKruskal(3, 3).run(new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11}),
+        new int[] {0, 1, 2, 3, 4, 5, 6, 9});
+    t.checkExpect(new GridKruskal(3, 3).run(new int[] {11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0}),
+        new int[] {11, 10, 9, 8, 7, 6, 5, 4});
+    t.checkExpect(new GridKruskal(1, 1).run(new int[0]), new int[0]);
+    t.checkException(new IllegalArgumentException("Must have edges that connect all nodes"),
+        new GridKruskal(3, 3), "run", new int[] {0, 1, 2, 3, 4, 5});
+  }
+  
+  // test carving and reading the walls of a compact maze
+  void testCompactMaze(Tester t) {
+    this.initData();
+    t.checkExpect(this.compact.cellCount(), 9);
+    t.checkExpect(this.compact.openRight(0), true);
+    t.checkExpect(this.compact.openDown(0), true);
+    t.checkExpect(this.compact.openRight(4), true);
+    t.checkExpect(this.compact.openDown(4), false);
+    t.checkExpect(this.compact.openLeft(5), true);
+    t.checkExpect(this.compact.openLeft(3), false);
+    t.checkExpect(this.compact.openUp(8), false);
+    t.checkExpect(this.compact.openUp(6), true);
+    t.checkExpect(this.compact.degree(3), 3);
+    t.checkExpect(this.compact.distance(0, 8), 4);
+    int[] out = new int[4];
+    t.checkExpect(this.compact.neighbors(3, out), 3);
+    t.checkExpect(out, new int[] {0, 4, 6, 0});
+    t.checkException(new IllegalArgumentException("Cells are not adjacent"),
+        this.compact, "carve", 2, 3);
+    CompactMaze big = new CompactMaze(40, 40);
+    big.carve(1598, 1599);
+    t.checkExpect(big.openRight(1598), true);
+    t.checkExpect(big.openDown(1598), false);
+    t.checkExpect(big.openLeft(1599), true);
+  }
+  
+  // test the node graph built from a compact maze
+  void testMazeNodes(Tester t) {
+    this.initData();
+    MazeNodes graph = new MazeNodes(this.compact, 50);
+    t.checkExpect(graph.nodes.size(), 9);
+    t.checkExpect(graph.edges.size(), 8);
+    t.checkExpect(graph.nodes.get(5).row, 1);
+    t.checkExpect(graph.nodes.get(5).col, 2);
+    t.checkExpect(graph.nodes.get(0).rightConnected, true);
+    t.checkExpect(graph.nodes.get(0).bottomConnected, true);
+    t.checkExpect(graph.nodes.get(4).bottomConnected, false);
+    t.checkExpect(graph.nodes.get(3).pathTo.size(), 3);
+  }
+  
+  // test that the kruskal generator makes a spanning tree
+  void testKruskalGenerator(Tester t) {
+    CompactMaze maze = new KruskalGenerator().generate(30, 20, new Random(3));
+    int passages = 0;
+    for (int cell = 0; cell < maze.cellCount(); cell++) {
+      passages += maze.degree(cell);
+    }
+    t.checkExpect(passages / 2, 599);
+    t.checkExpect(new CellBfs(maze, 0, 599).solve() != null, true);
+    t.checkExpect(maze, new KruskalGenerator().generate(30, 20, new Random(3)));
+  }
+  
+  // test the cell searches
+  void testCellSearch(Tester t) {
+    this.initData();
+    int[] path = new int[] {0, 3, 6, 7, 8};
+    t.checkExpect(new CellBfs(this.compact, 0, 8).solve(), path);
+    t.checkExpect(new CellDfs(this.compact, 0, 8).solve(), path);
+    t.checkExpect(new CellAStar(this.compact, 0, 8).solve(), path);
+    t.checkExpect(new CellBfs(this.compact, 5, 5).solve(), new int[] {5});
+    t.checkExpect(new CellBfs(new CompactMaze(2, 1), 0, 1).solve(), null);
+    CellBfs bfs = new CellBfs(this.compact, 0, 8);
+    t.checkExpect(bfs.next(), 0);
+    t.checkExpect(bfs.next(), 1);
+    t.checkExpect(bfs.next(), 3);
+    t.checkExpect(bfs.cameFrom[4], 3);
+    t.checkExpect(bfs.expanded(), 3);
+    CellDfs dfs = new CellDfs(this.compact, 0, 8);
+    t.checkExpect(dfs.next(), 0);
+    t.checkExpect(dfs.next(), 3);
+  }
+  
+  // test that searches keep their own state and leave the maze alone
+  void testSearchState(Tester t) {
+    this.initData();
+    for (Node n : this.nodes) {
+      n.connect(this.minimumSpanningTree);
+    }
+    Bfs first = new Bfs(this.n1, this.n9);
+    Dfs second = new Dfs(this.n1, this.n9);
+    while (!first.next().equals(this.n9)) {
+      // solve the first search completely
+    }
+    t.checkExpect(first.seen.contains(this.n1), true);
+    t.checkExpect(second.seen.isEmpty(), true);
+    t.checkExpect(second.next(), this.n1);
+    t.checkExpect(first.path,
+        new ArrayList<Node>(Arrays.asList(this.n9, this.n8, this.n7, this.n4, this.n1)));
+    t.checkExpect(this.n9.state, 0);
+    
+    CellBfs cells = new CellBfs(this.compact, 0, 8);
+    cells.solve();
+    t.checkExpect(cells.distances[8], 4);
+    t.checkExpect(cells.distances[2], 2);
+  }
+  
+  // test many searches running on one maze at once
+  void testConcurrentSearches(Tester t) {
+    CompactMaze maze = new KruskalGenerator().generate(60, 40, new Random(4));
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    ArrayList<Future<int[]>> results = new ArrayList<Future<int[]>>();
+    for (int i = 0; i < 64; i++) {
+      int target = i * 37;
+      results.add(pool.submit(() -> new CellAStar(maze, 0, target).solve()));
+    }
+    boolean allMatch = true;
+    try {
+      for (int i = 0; i < 64; i++) {
+        allMatch = allMatch
+            && Arrays.equals(results.get(i).get(), new CellBfs(maze, 0, i * 37).solve());
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      allMatch = false;
+    }
+    pool.shutdown();
+    t.checkExpect(allMatch, true);
+  }
+  
+  // test the bucket queue of the cell A* search
+  void testCellAStarBuckets(Tester t) {
+    this.initData();
+    CellAStar astar = new CellAStar(this.compact, 0, 8);
+    t.checkExpect(astar.lowest, 4);
+    t.checkExpect(astar.isQueued(0), true);
+    t.checkExpect(astar.next(), 0);
+    t.checkExpect(astar.isQueued(0), false);
+    t.checkExpect(astar.size, 2);
+    t.checkExpect(astar.estimate(1), 4);
+    t.checkExpect(astar.estimate(3), 4);
+    t.checkExpect(astar.next(), 3);
+    t.checkExpect(astar.next(), 6);
+    t.checkExpect(astar.removeFromWorklist(), 7);
+    t.checkExpect(astar.removeFromWorklist(), 4);
+    t.checkExpect(astar.removeFromWorklist(), 1);
+    t.checkExpect(astar.emptyWorklist(), true);
+    t.checkException(new IllegalStateException("The worklist is empty"),
+        astar, "removeFromWorklist");
+    
+    // a maze with a loop, where the first way found to a cell is not the shortest
+    CompactMaze loop = new CompactMaze(3, 2);
+    loop.carve(0, 1);
+    loop.carve(1, 2);
+    loop.carve(2, 5);
+    loop.carve(0, 3);
+    loop.carve(3, 4);
+    loop.carve(4, 5);
+    t.checkExpect(new CellAStar(loop, 0, 5).solve().length, 4);
+    CellAStar moved = new CellAStar(loop, 0, 4);
+    moved.reach(1, 0);
+    moved.reach(2, 1);
+    moved.reach(5, 2);
+    moved.reach(4, 5);
+    t.checkExpect(moved.distances[4], 4);
+    moved.reach(3, 0);
+    moved.reach(4, 3);
+    t.checkExpect(moved.cameFrom[4], 3);
+    t.checkExpect(moved.distances[4], 2);
+    t.checkExpect(moved.size, 6);
+    t.checkExpect(moved.removeFromWorklist(), 4);
+  }
+  
+  // test searching from both ends
+  void testBidirectional(Tester t) {
+    this.initData();
+    for (Node n : this.nodes) {
+      n.connect(this.minimumSpanningTree);
+    }
+    Bidirectional both = new Bidirectional(new Bfs(this.n1, this.n9), new Bfs(this.n9, this.n1));
+    t.checkExpect(both.next(), this.n1);
+    t.checkExpect(both.next(), this.n9);
+    t.checkExpect(both.solved, false);
+    t.checkExpect(both.forward.worklist,
+        new ArrayDeque<Node>(Arrays.asList(this.n2, this.n4)));
+    t.checkExpect(both.backward.worklist, new ArrayDeque<Node>(Arrays.asList(this.n8)));
+    Node last = both.next();
+    while (!last.equals(this.n9)) {
+      last = both.next();
+    }
+    t.checkExpect(both.solved, true);
+    t.checkExpect(both.path,
+        new ArrayList<Node>(Arrays.asList(this.n9, this.n8, this.n7, this.n4, this.n1)));
+    
+    this.initData();
+    int[] path = new int[] {0, 3, 6, 7, 8};
+    t.checkExpect(new CellBidirectional(new CellBfs(this.compact, 0, 8),
+        new CellBfs(this.compact, 8, 0), false).solve(), path);
+    t.checkExpect(new CellBidirectional(new CellAStar(this.compact, 0, 8),
+        new CellAStar(this.compact, 8, 0), true).solve(), path);
+    t.checkExpect(new CellBidirectional(new CellBfs(this.compact, 4, 4),
+        new CellBfs(this.compact, 4, 4), false).solve(), new int[] {4});
+    t.checkExpect(new CellBidirectional(new CellBfs(new CompactMaze(2, 1), 0, 1),
+        new CellBfs(new CompactMaze(2, 1), 1, 0), true).solve(), null);
+    // stepped one cell at a time, the two searches take turns until they meet
+    ICellStepper stepper = new CellBidirectional(new CellBfs(this.compact, 0, 8),
+        new CellBfs(this.compact, 8, 0), false);
+    t.checkExpect(stepper.next(), 0);
+    t.checkExpect(stepper.next(), 8);
+    t.checkExpect(stepper.isSolved(), false);
+    t.checkExpect(stepper.reached(), 5);
+    t.checkExpect(stepper.worklistSize(), 3);
+    while (!stepper.isSolved()) {
+      stepper.next();
+    }
+    t.checkExpect(stepper.path(), path);
+    t.checkExpect(stepper.name(), "bidirectional-bfs");
+    ICellStepper alone = new CellAStar(this.compact, 0, 8);
+    while (!alone.isSolved() && !alone.emptyWorklist()) {
+      alone.next();
+    }
+    t.checkExpect(alone.path(), path);
+    t.checkExpect(alone.stale(), 0);
+    CompactMaze maze = new KruskalGenerator().generate(80, 50, new Random(9));
+    int[] expected = new CellBfs(maze, 0, 3999).solve();
+    t.checkExpect(Runner.makeSolver("bibfs", maze, 0, 3999).solve(), expected);
+    t.checkExpect(Runner.makeSolver("biastar-parallel", maze, 0, 3999).solve(), expected);
+    t.checkConstructorException(
+        new IllegalArgumentException("The searches must run between the same cells"),
+        "CellBidirectional", new CellBfs(maze, 0, 5), new CellBfs(maze, 0, 5), false);
+  }
+  
+  // test collapsing corridors into a graph of junctions
+  void testJunctionGraph(Tester t) {
+    this.initData();
+    JunctionGraph graph = new JunctionGraph(this.compact);
+    t.checkExpect(graph.junctionOf, new int[] {-1, -1, 0, 1, -1, 2, -1, -1, 3});
+    t.checkExpect(graph.cells, new int[] {2, 3, 5, 8});
+    t.checkExpect(graph.offsets, new int[] {0, 1, 4, 5, 6});
+    t.checkExpect(graph.ends, new int[] {1, 0, 2, 3, 1, 1});
+    t.checkExpect(graph.lengths, new int[] {3, 3, 2, 3, 2, 3});
+    t.checkExpect(graph.firstSteps, new int[] {1, 0, 4, 6, 4, 7});
+    t.checkExpect(graph.source(0), 0);
+    t.checkExpect(graph.source(3), 1);
+    t.checkExpect(graph.source(5), 3);
+    
+    JunctionSearch search = new JunctionSearch(graph, 0, 8, false);
+    t.checkExpect(search.solve(), new int[] {0, 3, 6, 7, 8});
+    t.checkExpect(search.expanded(), 7);
+    t.checkExpect(new JunctionSearch(graph, 8, 0, true).solve(), new int[] {8, 7, 6, 3, 0});
+    t.checkExpect(new JunctionSearch(graph, 1, 0, false).solve(), new int[] {1, 0});
+    t.checkExpect(new JunctionSearch(graph, 7, 1, false).solve(),
+        new int[] {7, 6, 3, 0, 1});
+    t.checkExpect(new JunctionSearch(graph, 4, 4, false).solve(), new int[] {4});
+    t.checkExpect(new JunctionSearch(new JunctionGraph(new CompactMaze(2, 1)), 0, 1, false)
+        .solve(), null);
+    
+    CompactMaze maze = new KruskalGenerator().generate(60, 40, new Random(4));
+    JunctionGraph big = new JunctionGraph(maze);
+    Random rand = new Random(5);
+    boolean same = true;
+    int cellsExpanded = 0;
+    int junctionsExpanded = 0;
+    for (int i = 0; i < 20; i++) {
+      int from = rand.nextInt(maze.cellCount());
+      int to = rand.nextInt(maze.cellCount());
+      CellBfs bfs = new CellBfs(maze, from, to);
+      JunctionSearch junctions = new JunctionSearch(big, from, to, i % 2 == 0);
+      same = same && Arrays.equals(bfs.solve(), junctions.solve());
+      cellsExpanded += bfs.expanded();
+      junctionsExpanded += junctions.expanded();
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(junctionsExpanded < cellsExpanded, true);
+    t.checkExpect(Runner.makeSolver("junction-astar", maze, 0, 2399).solve(),
+        new CellBfs(maze, 0, 2399).solve());
+  }
+  
+  // test looking up paths in the rooted tree of a maze
+  void testMazeTree(Tester t) {
+    this.initData();
+    MazeTree tree = new MazeTree(this.compact);
+    t.checkExpect(tree.parents, new int[] {0, 0, 1, 0, 3, 4, 3, 6, 7});
+    t.checkExpect(tree.depths, new int[] {0, 1, 2, 1, 2, 3, 2, 3, 4});
+    t.checkExpect(tree.jumps, new int[] {0, 0, 1, 0, 3, 0, 3, 0, 7});
+    t.checkExpect(tree.ancestor(8, 1), 3);
+    t.checkExpect(tree.commonAncestor(5, 8), 3);
+    t.checkExpect(tree.commonAncestor(2, 4), 0);
+    t.checkExpect(tree.commonAncestor(6, 8), 6);
+    t.checkExpect(tree.distance(2, 8), 6);
+    t.checkExpect(tree.distance(7, 7), 0);
+    t.checkExpect(tree.path(2, 8), new int[] {2, 1, 0, 3, 6, 7, 8});
+    t.checkExpect(tree.path(5, 8), new int[] {5, 4, 3, 6, 7, 8});
+    t.checkExpect(tree.path(8, 6), new int[] {8, 7, 6});
+    t.checkExpect(tree.path(4, 4), new int[] {4});
+    TreeSolver solver = new TreeSolver(tree, 0, 8);
+    t.checkExpect(solver.solve(), new int[] {0, 3, 6, 7, 8});
+    t.checkExpect(solver.expanded(), 5);
+    
+    CompactMaze maze = new KruskalGenerator().generate(70, 30, new Random(6));
+    MazeTree big = new MazeTree(maze);
+    Random rand = new Random(7);
+    boolean same = true;
+    for (int i = 0; i < 30; i++) {
+      int from = rand.nextInt(maze.cellCount());
+      int to = rand.nextInt(maze.cellCount());
+      int[] expected = new CellBfs(maze, from, to).solve();
+      same = same && Arrays.equals(big.path(from, to), expected)
+          && big.distance(from, to) == expected.length - 1;
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(Runner.makeSolver("tree", maze, 0, 2099).solve(),
+        new CellBfs(maze, 0, 2099).solve());
+    
+    CompactMaze loop = new CompactMaze(2, 2);
+    loop.carve(0, 1);
+    loop.carve(1, 3);
+    loop.carve(3, 2);
+    loop.carve(2, 0);
+    t.checkConstructorException(new IllegalArgumentException("The maze is not a spanning tree"),
+        "MazeTree", loop);
+    t.checkConstructorException(new IllegalArgumentException("The maze is not a spanning tree"),
+        "MazeTree", new CompactMaze(2, 1));
+    CompactMaze split = new CompactMaze(2, 3);
+    split.carve(0, 1);
+    split.carve(2, 3);
+    split.carve(3, 5);
+    split.carve(5, 4);
+    split.carve(4, 2);
+    t.checkConstructorException(new IllegalArgumentException("The maze is not a spanning tree"),
+        "MazeTree", split);
+  }
+  
+  // test answering many queries on one maze at once
+  void testBatchQueries(Tester t) {
+    this.initData();
+    BatchQueries queries = new BatchQueries(this.compact, new ForkJoinPool(2));
+    int[] from = new int[] {0, 8, 0, 4, 1, 2};
+    int[] to = new int[] {8, 0, 5, 4, 0, 8};
+    BatchResult result = queries.solve(from, to, true);
+    t.checkExpect(result.distances, new int[] {4, 4, 3, 0, 1, 6});
+    t.checkExpect(PathCodec.decode(0, 4, result.paths[0], 3), new int[] {0, 3, 6, 7, 8});
+    t.checkExpect(PathCodec.decode(8, 4, result.paths[1], 3), new int[] {8, 7, 6, 3, 0});
+    t.checkExpect(PathCodec.decode(1, 1, result.paths[4], 3), new int[] {1, 0});
+    t.checkExpect(PathCodec.decode(2, 6, result.paths[5], 3),
+        new int[] {2, 1, 0, 3, 6, 7, 8});
+    t.checkExpect(result.paths[3], new byte[0]);
+    t.checkExpect(queries.solve(from, to, false).paths, null);
+    t.checkExpect(queries.solve(new int[0], new int[0], true).distances, new int[0]);
+    // the fields are kept between batches, no more of them than the pool's threads and the
+    // thread that asked could use at once
+    t.checkExpect(queries.fields.isEmpty(), false);
+    t.checkExpect(queries.fields.size() <= 3, true);
+    BatchResult apart = new BatchQueries(new CompactMaze(2, 1)).solve(new int[] {0},
+        new int[] {1}, true);
+    t.checkExpect(apart.distances, new int[] {-1});
+    t.checkExpect(apart.paths[0], null);
+    t.checkException(new IllegalArgumentException("Every start needs a target"), queries,
+        "solve", new int[] {0}, new int[0], false);
+    
+    CompactMaze maze = new KruskalGenerator().generate(50, 40, new Random(8));
+    MazeTree tree = new MazeTree(maze);
+    Random rand = new Random(9);
+    int[] starts = new int[300];
+    int[] targets = new int[300];
+    for (int i = 0; i < starts.length; i++) {
+      starts[i] = i % 3 == 0 ? 0 : rand.nextInt(maze.cellCount());
+      targets[i] = rand.nextInt(maze.cellCount());
+    }
+    BatchResult many = new BatchQueries(maze, new ForkJoinPool(3)).solve(starts, targets, true);
+    boolean same = true;
+    for (int i = 0; i < starts.length; i++) {
+      same = same && many.distances[i] == tree.distance(starts[i], targets[i])
+          && Arrays.equals(PathCodec.decode(starts[i], many.distances[i], many.paths[i],
+              maze.width()), tree.path(starts[i], targets[i]));
+    }
+    t.checkExpect(same, true);
+  }
+  
+  // test packing paths into two bits per step
+  void testPathCodec(Tester t) {
+    t.checkExpect(PathCodec.encode(new int[] {0, 3, 6, 7, 8}, 3), new byte[] {(byte) 175});
+    t.checkExpect(PathCodec.encode(new int[] {4, 1, 0, 3, 4, 5}, 3),
+        new byte[] {(byte) 0xb4, 2});
+    t.checkExpect(PathCodec.decode(4, 5, new byte[] {(byte) 0xb4, 2}, 3),
+        new int[] {4, 1, 0, 3, 4, 5});
+    t.checkExpect(PathCodec.encode(new int[] {7}, 3), new byte[0]);
+    t.checkExpect(PathCodec.decode(7, 0, new byte[0], 3), new int[] {7});
+    t.checkException(new IllegalArgumentException("Cells are not adjacent"), new PathCodec(),
+        "direction", 0, 4, 3);
+  }
+  
+  // test the heap of junctions
+  void testLongHeap(Tester t) {
+    LongHeap heap = new LongHeap();
+    for (long item : new long[] {5, 3, 9, 1, 7, 3, 20, 0, 11, 2, 8, 6, 4, 12, 15, 13, 14}) {
+      heap.add(item);
+    }
+    long[] removed = new long[heap.size];
+    for (int i = 0; i < removed.length; i++) {
+      removed[i] = heap.remove();
+    }
+    t.checkExpect(removed,
+        new long[] {0, 1, 2, 3, 3, 4, 5, 6, 7, 8, 9, 11, 12, 13, 14, 15, 20});
+    t.checkExpect(heap.isEmpty(), true);
+    t.checkException(new IllegalStateException("The heap is empty"), heap, "remove");
+  }
+  
+  // test the cell deque
+  void testIntDeque(Tester t) {
+    IntDeque deque = new IntDeque();
+    t.checkExpect(deque.isEmpty(), true);
+    for (int i = 0; i < 20; i++) {
+      deque.addLast(i);
+    }
+    deque.addFirst(-1);
+    t.checkExpect(deque.removeFirst(), -1);
+    t.checkExpect(deque.removeFirst(), 0);
+    t.checkExpect(deque.size, 19);
+    t.checkExpect(deque.get(0), 1);
+    t.checkExpect(deque.get(18), 19);
+    IntDeque small = new IntDeque();
+    small.addLast(2);
+    small.addFirst(1);
+    small.addLast(3);
+    t.checkExpect(small.toArray(), new int[] {1, 2, 3});
+    t.checkException(new IllegalStateException("The deque is empty"),
+        new IntDeque(), "removeFirst");
+  }
+  
+  // test eller's algorithm
+  void testEllerGenerator(Tester t) {
+    CompactMaze maze = new EllerGenerator().generate(30, 20, new Random(3));
+    int passages = 0;
+    for (int cell = 0; cell < maze.cellCount(); cell++) {
+      passages += maze.degree(cell);
+    }
+    t.checkExpect(passages / 2, 599);
+    t.checkExpect(new CellBfs(maze, 0, 599).solve() != null, true);
+    t.checkExpect(new CellBfs(maze, 29, 570).solve() != null, true);
+    t.checkExpect(maze, new EllerGenerator().generate(30, 20, new Random(3)));
+    CompactMaze column = new EllerGenerator().generate(1, 4, new Random(3));
+    t.checkExpect(new CellBfs(column, 0, 3).solve(), new int[] {0, 1, 2, 3});
+    CompactMaze line = new EllerGenerator().generate(4, 1, new Random(3));
+    t.checkExpect(new CellBfs(line, 0, 3).solve(), new int[] {0, 1, 2, 3});
+  }
+  
+  // test the tiled parallel generator
+  void testTiledGenerator(Tester t) {
+    CompactMaze maze = new TiledGenerator(8).generate(30, 20, new Random(3));
+    int passages = 0;
+    for (int cell = 0; cell < maze.cellCount(); cell++) {
+      passages += maze.degree(cell);
+    }
+    t.checkExpect(passages / 2, 599);
+    t.checkExpect(new CellBfs(maze, 0, 599).solve() != null, true);
+    t.checkExpect(new CellBfs(maze, 29, 570).solve() != null, true);
+    t.checkExpect(maze,
+        new TiledGenerator(8, new ForkJoinPool(1)).generate(30, 20, new Random(3)));
+    t.checkExpect(maze,
+        new TiledGenerator(8, new ForkJoinPool(4)).generate(30, 20, new Random(3)));
+    CompactMaze single = new TiledGenerator(64).generate(5, 5, new Random(3));
+    t.checkExpect(new CellBfs(single, 0, 24).solve() != null, true);
+    t.checkConstructorException(new IllegalArgumentException("Tile size must be positive"),
+        "TiledGenerator", 0);
+  }
+  
+  // test that boruvka's algorithm makes the same maze as kruskal's
+  void testBoruvkaGenerator(Tester t) {
+    t.checkExpect(new BoruvkaGenerator().generate(30, 20, new Random(3)),
+        new KruskalGenerator().generate(30, 20, new Random(3)));
+    t.checkExpect(new BoruvkaGenerator(new ForkJoinPool(1)).generate(17, 9, new Random(8)),
+        new KruskalGenerator().generate(17, 9, new Random(8)));
+    t.checkExpect(new BoruvkaGenerator().generate(1, 6, new Random(0)),
+        new KruskalGenerator().generate(1, 6, new Random(0)));
+    t.checkExpect(new BoruvkaGenerator().generate(1, 1, new Random(0)),
+        new KruskalGenerator().generate(1, 1, new Random(0)));
+  }
+  
+  // test union find shared between threads
+  void testConcurrentUnionFind(Tester t) {
+    ConcurrentUnionFind sets = new ConcurrentUnionFind(4);
+    t.checkExpect(sets.union(3, 2), true);
+    t.checkExpect(sets.find(3), 2);
+    t.checkExpect(sets.union(2, 3), false);
+    t.checkExpect(sets.union(0, 3), true);
+    t.checkExpect(sets.find(2), 0);
+    t.checkFail(sets.find(1), sets.find(0));
+  }
+  
+  // test the headless batch runner
+  void testBatchRunner(Tester t) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new BatchRunner(4, 3, 2, 5, "kruskal", "bfs", "csv", new PrintStream(bytes)).run();
+    String[] lines = bytes.toString().split("\n");
+    t.checkExpect(lines.length, 3);
+    t.checkExpect(lines[0].startsWith("maze,seed,width,height"), true);
+    t.checkExpect(lines[2].startsWith("1,6,4,3,kruskal,bfs,"), true);
+    bytes.reset();
+    new BatchRunner(4, 3, 1, 5, "eller", "astar", "json", new PrintStream(bytes)).run();
+    t.checkExpect(bytes.toString().startsWith("{\"maze\":0,\"seed\":5,"), true);
+    t.checkConstructorException(new IllegalArgumentException("Unknown format: xml"),
+        "BatchRunner", 4, 3, 1, 5L, "kruskal", "bfs", "xml", System.out);
+    t.checkException(new IllegalArgumentException("Unknown algorithm: bogo"),
+        new BatchRunner(4, 3, 1, 5, "kruskal", "bogo", "csv", new PrintStream(bytes)), "run");
+    t.checkConstructorException(new IllegalArgumentException("Bad maze size: 0x3"),
+        "BatchRunner", 0, 3, 1, 5L, "kruskal", "bfs", "csv", System.out);
+    t.checkConstructorException(new IllegalArgumentException("Bad maze size: 4x-1"),
+        "BatchRunner", 4, -1, 1, 5L, "kruskal", "bfs", "csv", System.out);
+    // every generator rejects a size it cannot make before doing any work
+    String[] generators = {"kruskal", "eller", "tiled", "boruvka"};
+    for (String name : generators) {
+      t.checkException(new IllegalArgumentException("Bad maze size: 0x5"),
+          Runner.makeGenerator(name), "generate", 0, 5, new Random(1));
+      t.checkException(new IllegalArgumentException("Bad maze size: 65536x65536"),
+          Runner.makeGenerator(name), "generate", 1 << 16, 1 << 16, new Random(1));
+    }
+    t.checkException(new IllegalArgumentException("Bad maze size: 3x0"),
+        new EllerGenerator(), "stream", 3, 0, new Random(1), new CompactMaze(3, 1));
+  }
+  
+  // test cancelling solvers before and while they run
+  void testCancel(Tester t) {
+    this.initData();
+    CompactMaze maze = new KruskalGenerator().generate(20, 20, new Random(3));
+    ICellSolver[] solvers = {new CellBfs(maze, 0, 399), new CellAStar(maze, 0, 399),
+        new CellBidirectional(new CellBfs(maze, 0, 399), new CellBfs(maze, 399, 0), false),
+        new CellBidirectional(new CellDfs(maze, 0, 399), new CellDfs(maze, 399, 0), true),
+        new JunctionSearch(new JunctionGraph(maze), 0, 399, true),
+        new TreeSolver(new MazeTree(maze), 0, 399)};
+    for (ICellSolver solver : solvers) {
+      solver.cancel();
+      t.checkExpect(solver.solve(), null);
+    }
+    t.checkExpect(solvers[0].expanded(), 0);
+    // a search that has already found the path keeps it
+    CellBfs bfs = new CellBfs(maze, 0, 399);
+    int[] path = bfs.solve();
+    bfs.cancel();
+    t.checkExpect(bfs.solve(), path);
+  }
+  
+  // test racing solvers against each other
+  void testRaceSolver(Tester t) {
+    CompactMaze maze = new KruskalGenerator().generate(30, 20, new Random(4));
+    int[] path = new CellBfs(maze, 0, 599).solve();
+    RaceSolver race = new RaceSolver(maze, 0, 599);
+    t.checkExpect(race.solve(), path);
+    t.checkExpect(Arrays.asList(RaceSolver.ALL).contains(race.winner), true);
+    t.checkExpect(race.expanded() > 0, true);
+    // the race is over, so the solvers still running have been asked to stop
+    t.checkExpect(race.cancelled, true);
+    t.checkExpect(Runner.makeSolver("race", maze, 5, 5) instanceof RaceSolver, true);
+    
+    // solvers that cannot run drop out, and a race nobody finishes has no winner
+    RaceSolver failing = new RaceSolver(new CompactMaze(3, 3), 0, 8,
+        new String[] {"bfs", "tree", "bogo"}, RaceSolver.POOL);
+    t.checkExpect(failing.solve(), null);
+    t.checkExpect(failing.winner, null);
+    t.checkExpect(failing.expanded(), 0);
+    RaceSolver alone = new RaceSolver(maze, 0, 599, new String[] {"dfs"}, RaceSolver.POOL);
+    alone.cancel();
+    t.checkExpect(alone.solve(), null);
+    
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new BatchRunner(4, 3, 1, 5, "kruskal", "race", "csv", new PrintStream(bytes)).run();
+    t.checkExpect(bytes.toString().split("\n")[1].startsWith("0,5,4,3,kruskal,race:"), true);
+  }
+  
+  // test the benchmark harness
+  void testBenchmarks(Tester t) {
+    t.checkExpect(Benchmarks.parseSizes("10x10, 20x5"), new int[][] {{10, 10}, {20, 5}});
+    t.checkException(new IllegalArgumentException("Sizes must look like 10x10: 10"),
+        new Benchmarks(new int[0][], 0, 0, System.out), "parseSizes", "10");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Benchmarks bench = new Benchmarks(new int[][] {{3, 3}}, 0, 0, new PrintStream(bytes));
+    bench.run();
+    String[] lines = bytes.toString().split("\n");
+    t.checkExpect(lines.length, 18);
+    t.checkExpect(lines[1].startsWith("shuffle"), true);
+    t.checkExpect(lines[1].contains("3x3"), true);
+    t.checkExpect(bench.repeat(() -> 1, 0), 1L);
+  }
+  
+  // test saving mazes to binary files and mapping them back in
+  void testMazeFile(Tester t) throws IOException {
+    this.initData();
+    Path file = Files.createTempFile("maze", ".mzb");
+    MazeFile.write(file, this.compact, 77, "kruskal", new int[] {0, 3, 6, 7, 8});
+    t.checkExpect(Files.size(file), 64L + 8 + 12 + 1);
+    MappedMaze loaded = new MappedMaze(file);
+    t.checkExpect(loaded.width(), 3);
+    t.checkExpect(loaded.height(), 3);
+    t.checkExpect(loaded.seed, 77L);
+    t.checkExpect(loaded.generator, "kruskal");
+    t.checkExpect(loaded.hasSolution(), true);
+    t.checkExpect(loaded.solution(), new int[] {0, 3, 6, 7, 8});
+    t.checkExpect(MazeFile.wallWord(loaded, 0), this.compact.walls[0]);
+    t.checkExpect(new CellBfs(loaded, 2, 5).solve(), new int[] {2, 1, 0, 3, 4, 5});
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new BatchRunner(3, 3, 1, 77, "kruskal", "bfs", "csv", new PrintStream(bytes))
+        .runLoaded(loaded, 5);
+    t.checkExpect(bytes.toString().split("\n")[1].startsWith("0,77,3,3,kruskal,bfs,5,8,5,"),
+        true);
+    
+    CompactMaze maze = new EllerGenerator().generate(45, 33, new Random(2));
+    MazeFile.write(file, maze, 2, "eller", null);
+    loaded = new MappedMaze(file);
+    t.checkExpect(loaded.solution(), null);
+    boolean same = true;
+    for (int cell = 0; cell < maze.cellCount(); cell++) {
+      same = same && loaded.openRight(cell) == maze.openRight(cell)
+          && loaded.openDown(cell) == maze.openDown(cell);
+    }
+    t.checkExpect(same, true);
+    // writing the mapped maze again packs its walls one cell at a time
+    Path copy = Files.createTempFile("maze", ".mzb");
+    MazeFile.write(copy, loaded, 2, "eller", null);
+    t.checkExpect(Files.readAllBytes(copy), Files.readAllBytes(file));
+    
+    Runner.saveMaze(6, 4, "boruvka", 3, "astar", copy.toString());
+    loaded = new MappedMaze(copy);
+    t.checkExpect(loaded.generator, "boruvka");
+    t.checkExpect(loaded.seed, 3L);
+    t.checkExpect(loaded.solution(), new CellBfs(loaded, 0, 23).solve());
+    
+    Files.write(file, new byte[70]);
+    t.checkExpect(this.mazeFileError(file), "Not a maze file: " + file);
+    Files.write(file, ByteBuffer.allocate(64).putInt(MazeFile.MAGIC).putInt(2).array());
+    t.checkExpect(this.mazeFileError(file), "Unsupported maze file version: 2");
+    Runner.saveMaze(6, 4, "kruskal", 3, "astar", copy.toString());
+    Files.write(file, Arrays.copyOf(Files.readAllBytes(copy), 80));
+    t.checkExpect(this.mazeFileError(file), "The maze file is cut short: " + file);
+    byte[] saved = Files.readAllBytes(copy);
+    Files.write(file, Arrays.copyOf(saved, saved.length + 8));
+    t.checkExpect(this.mazeFileError(file),
+        "The maze file is longer than its header says: " + file);
+    Files.write(file, ByteBuffer.wrap(saved.clone()).putInt(8, -6).array());
+    t.checkExpect(this.mazeFileError(file), "Bad maze size in " + file + ": -6x4");
+    Files.write(file, ByteBuffer.wrap(saved.clone()).putInt(8, 1 << 16).putInt(12, 1 << 16)
+        .array());
+    t.checkExpect(this.mazeFileError(file), "Bad maze size in " + file + ": 65536x65536");
+    Files.write(file, ByteBuffer.wrap(saved.clone()).putInt(72, 24).array());
+    t.checkExpect(this.mazeFileError(file), "Bad solution in " + file);
+    byte[] renamed = saved.clone();
+    renamed[32] = 'x';
+    Files.write(file, renamed);
+    t.checkExpect(this.mazeFileError(file), "Unknown generator in " + file + ": xruskal");
+    // walls open onto the edge of the maze are read as closed
+    MazeFile.write(file, new CompactMaze(2, 2), 1, "kruskal", null);
+    Files.write(file, ByteBuffer.wrap(Files.readAllBytes(file)).putLong(64, 0xffL).array());
+    loaded = new MappedMaze(file);
+    t.checkExpect(loaded.openRight(0), true);
+    t.checkExpect(loaded.openRight(1), false);
+    t.checkExpect(loaded.openDown(2), false);
+    t.checkExpect(new CellBfs(loaded, 0, 3).solve().length, 3);
+    t.checkExpect(new MazeGenerator(loaded, new Random(1)).moveFrom(3, "down"), 3);
+    // a saved solution that crosses a wall is not handed out
+    MazeFile.write(file, this.compact, 77, "kruskal", new int[] {0, 1, 4, 5, 8});
+    t.checkExpect(new MappedMaze(file).hasSolution(), true);
+    t.checkExpect(new MappedMaze(file).solution(), null);
+    // the game reports a file it cannot open and keeps its maze
+    this.initData();
+    this.testWorld.file = file.toString();
+    this.testWorld.onKeyEvent("l");
+    t.checkExpect(this.testWorld.generator, new KruskalGenerator());
+    t.checkExpect(this.testWorld.width, 3);
+    Files.delete(file);
+    Files.delete(copy);
+  }
+  
+  // the message of the exception opening the maze file throws, or "" if it opens
+  String mazeFileError(Path file) {
+    try {
+      new MappedMaze(file);
+      return "";
+    } catch (IOException e) {
+      return e.getMessage();
+    }
+  }
+  
+  // test saving and loading the maze in the game
+  void testSaveLoad(Tester t) throws IOException {
+    initData();
+    Path file = Files.createTempFile("maze", ".mzb");
+    this.testWorld.file = file.toString();
+    t.checkExpect(this.testWorld.solution(), null);
+    this.testWorld.onKeyEvent("b");
+    for (int i = 0; i < 20 && this.testWorld.autoSolve; i++) {
+      this.testWorld.onTick();
+    }
+    int[] solution = this.testWorld.solution();
+    t.checkExpect(solution[0], 0);
+    t.checkExpect(solution[solution.length - 1], 8);
+    this.testWorld.onKeyEvent("s");
+    long seed = this.testWorld.seed;
+    long walls = MazeFile.wallWord(this.testWorld.maze, 0);
+    
+    this.testWorld.onKeyEvent("n");
+    this.testWorld.onKeyEvent("l");
+    t.checkExpect(this.testWorld.seed, seed);
+    t.checkExpect(this.testWorld.maze instanceof MappedMaze, true);
+    t.checkExpect(MazeFile.wallWord(this.testWorld.maze, 0), walls);
+    t.checkExpect(((MappedMaze) this.testWorld.maze).solution(), solution);
+    t.checkExpect(this.testWorld.generator.name(), "kruskal");
+    t.checkExpect(this.testWorld.states.length, 9);
+    t.checkExpect(this.testWorld.states[0], (byte) 3);
+    // saving over the file the maze is mapped from replaces it whole
+    this.testWorld.onKeyEvent("s");
+    t.checkExpect(Files.size(file), 64L + 8 + 12 + (solution.length + 2) / 4);
+    t.checkExpect(MazeFile.wallWord(this.testWorld.maze, 0), walls);
+    this.testWorld.onKeyEvent("l");
+    t.checkExpect(MazeFile.wallWord(this.testWorld.maze, 0), walls);
+    t.checkExpect(((MappedMaze) this.testWorld.maze).solution(), solution);
+    t.checkExpect(Files.exists(Paths.get(file + ".tmp")), false);
+    
+    MazeGenerator loaded = new MazeGenerator(new MappedMaze(file), new Random(1));
+    t.checkExpect(loaded.seed, seed);
+    t.checkExpect(loaded.target, 8);
+    Files.delete(file);
+  }
+  
+  // test writing a maze as ascii art
+  void testAsciiSink(Tester t) {
+    this.initData();
+    StringWriter out = new StringWriter();
+    this.compact.emitRows(new AsciiSink(out));
+    t.checkExpect(out.toString(),
+        "+--+--+--+\n"
+        + "|        |\n"
+        + "+  +--+--+\n"
+        + "|        |\n"
+        + "+  +--+--+\n"
+        + "|        |\n"
+        + "+--+--+--+\n");
+    out = new StringWriter();
+    this.compact.emitRows(new AsciiSink(out, new int[] {0, 3, 6, 7, 8}));
+    t.checkExpect(out.toString(),
+        "+--+--+--+\n"
+        + "|**      |\n"
+        + "+**+--+--+\n"
+        + "|**      |\n"
+        + "+**+--+--+\n"
+        + "|********|\n"
+        + "+--+--+--+\n");
+  }
+  
+  // test finding the cells of a path in order
+  void testPathCursor(Tester t) {
+    t.checkExpect(PathCursor.sort(new int[] {8, 7, 6, 3, 0}), new int[] {0, 3, 6, 7, 8});
+    PathCursor cursor = new PathCursor(new int[] {0, 3, 6, 7, 8});
+    t.checkExpect(cursor.contains(0), true);
+    t.checkExpect(cursor.contains(2), false);
+    t.checkExpect(cursor.contains(3), true);
+    t.checkExpect(cursor.contains(5), false);
+    cursor.rewind(3);
+    t.checkExpect(cursor.next, 1);
+    t.checkExpect(cursor.contains(3), true);
+    t.checkExpect(cursor.contains(9), false);
+    t.checkExpect(new PathCursor(null).contains(0), false);
+  }
+  
+  // test writing a maze as an image
+  void testPixelSink(Tester t) {
+    this.initData();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    this.compact.emitRows(new PixelSink(Channels.newChannel(bytes), 3, 3, null, false));
+    t.checkExpect(bytes.toByteArray(), new byte[] {'P', '4', '\n', '7', ' ', '7', '\n',
+        (byte) 254, (byte) 130, (byte) 190, (byte) 130, (byte) 190, (byte) 130, (byte) 254});
+    
+    bytes.reset();
+    this.compact.emitRows(new PixelSink(Channels.newChannel(bytes), 3, 3,
+        new int[] {0, 3, 6, 7, 8}, true));
+    byte[] grey = bytes.toByteArray();
+    t.checkExpect(new String(grey, 0, 11, StandardCharsets.US_ASCII), "P5\n7 7\n255\n");
+    t.checkExpect(grey.length, 11 + 49);
+    // the second and last rows of pixels inside the border
+    t.checkExpect(Arrays.copyOfRange(grey, 18, 25),
+        new byte[] {0, (byte) 128, -1, -1, -1, -1, 0});
+    t.checkExpect(Arrays.copyOfRange(grey, 46, 53),
+        new byte[] {0, (byte) 128, (byte) 128, (byte) 128, (byte) 128, (byte) 128, 0});
+    
+    // a row wider than the buffer is written straight through
+    CompactMaze wide = new CompactMaze(40000, 2);
+    bytes.reset();
+    wide.emitRows(new PixelSink(Channels.newChannel(bytes), 40000, 2, null, true));
+    t.checkExpect(bytes.size(), "P5\n80001 5\n255\n".length() + 80001 * 5);
+  }
+  
+  // test reading the GUI's nodes as a maze
+  void testNodeMaze(Tester t) {
+    this.initData();
+    for (Node n : this.nodes) {
+      n.connect(this.minimumSpanningTree);
+    }
+    NodeMaze maze = new NodeMaze(this.nodes, 3, 3);
+    boolean same = true;
+    for (int cell = 0; cell < 9; cell++) {
+      same = same && maze.openRight(cell) == this.compact.openRight(cell)
+          && maze.openDown(cell) == this.compact.openDown(cell);
+    }
+    t.checkExpect(same, true);
+    ArrayList<Node> graph = new MazeNodes(this.compact, 1).nodes;
+    t.checkExpect(new NodeMaze(graph, 3, 3).cells(
+        new ArrayList<Node>(Arrays.asList(graph.get(8), graph.get(7), graph.get(4)))),
+        new int[] {8, 7, 4});
+    t.checkExpect(new CellBfs(maze, 0, 8).solve(), new int[] {0, 3, 6, 7, 8});
+  }
+  
+  // test exporting mazes to files by their extension
+  void testMazeExport(Tester t) throws IOException {
+    this.initData();
+    Path file = Files.createTempFile("maze", ".pgm");
+    MazeExport.write(this.compact, new int[] {8, 7, 6, 3, 0}, file);
+    t.checkExpect(Files.size(file), 11L + 49);
+    Path text = Files.createTempFile("maze", ".txt");
+    MazeExport.write(this.compact, null, text);
+    t.checkExpect(new String(Files.readAllBytes(text), StandardCharsets.US_ASCII),
+        "+--+--+--+\n"
+        + "|        |\n"
+        + "+  +--+--+\n"
+        + "|        |\n"
+        + "+  +--+--+\n"
+        + "|        |\n"
+        + "+--+--+--+\n");
+    
+    Runner.writeMaze(20, 10, "eller", 4, text.toString(), null);
+    StringWriter out = new StringWriter();
+    new EllerGenerator().generate(20, 10, new Random(4)).emitRows(new AsciiSink(out));
+    t.checkExpect(new String(Files.readAllBytes(text), StandardCharsets.US_ASCII),
+        out.toString());
+    Path image = Files.createTempFile("maze", ".pbm");
+    Runner.writeMaze(20, 10, "kruskal", 4, image.toString(), "astar");
+    t.checkExpect(Files.size(image), "P4\n41 21\n".length() + 6L * 21);
+    Files.delete(file);
+    Files.delete(text);
+    Files.delete(image);
+  }
+  
   // test kruskal multiple tree method
   void testMultiTree(Tester t) {
     this.initData();
@@ -531,6 +1741,20 @@ class ExamplesKruskal {
     t.checkExpect(n1.pathTo, new ArrayList<Node>(Arrays.asList(this.n2, this.n4)));
   }
   
+  // test linking nodes directly
+  void testLink(Tester t) {
+    this.initData();
+    this.e1.link();
+    this.e3.link();
+    t.checkExpect(this.n1.pathTo, new ArrayList<Node>(Arrays.asList(this.n2, this.n4)));
+    t.checkExpect(this.n2.pathTo, new ArrayList<Node>(Arrays.asList(this.n1)));
+    t.checkExpect(this.n1.right, this.n2);
+    t.checkExpect(this.n1.bottom, this.n4);
+    t.checkExpect(this.n2.leftConnected, true);
+    t.checkExpect(this.n4.top, this.n1);
+    t.checkExpect(this.n1.topConnected, false);
+  }
+  
   // test the contains method
   void testContains(Tester t) {
     this.initData();
@@ -595,25 +1819,112 @@ class ExamplesKruskal {
   void testMakeScene(Tester t) {
     this.initData();
     WorldScene scene = new WorldScene(1500, 800);
-    for (Node n: this.nodes) {
-      n.connect(this.minimumSpanningTree);
-      scene.placeImageXY(n.drawNode(), 10, 10);
-    }
+    byte[] states = new byte[] {3, 0, 0, 0, 0, 0, 0, 0, 4};
+    scene.placeImageXY(MazeGenerator.canvasFor(this.testWorld.maze, states).render(), 409, 409);
     scene.placeImageXY(new TextImage("Controls:", 30, Color.black), 1415, 100);
     scene.placeImageXY(new TextImage("New maze: n", 25, Color.black), 1415, 150);
-    scene.placeImageXY(new TextImage("Reset: r", 25, Color.black), 1415, 200);
+    scene.placeImageXY(new TextImage("Reset: r", 25, Color.black), 1415, 180);
+    scene.placeImageXY(new TextImage("Save, load: s, l", 25, Color.black), 1415, 210);
+    scene.placeImageXY(new TextImage("Speed: +, -", 25, Color.black), 1415, 240);
+    scene.placeImageXY(new TextImage("Finish, replay: f, p", 25, Color.black), 1415, 270);
     scene.placeImageXY(new TextImage("Breadth-first:", 25, Color.black), 1415, 300);
     scene.placeImageXY(new TextImage("b", 25, Color.black), 1415, 330);
     scene.placeImageXY(new TextImage("Depth-first:", 25, Color.black), 1415, 380);
     scene.placeImageXY(new TextImage("d", 25, Color.black), 1415, 410);
     scene.placeImageXY(new TextImage("A*: a", 25, Color.black), 1415, 460);
+    scene.placeImageXY(new TextImage("From both ends:", 25, Color.black), 1415, 510);
+    scene.placeImageXY(new TextImage("B, A", 25, Color.black), 1415, 540);
     scene.placeImageXY(new TextImage("Manual solve:", 25, Color.black), 1415, 600);
     scene.placeImageXY(new TextImage("Arrow Keys", 25, Color.black), 1415, 630);
     scene.placeImageXY(new TextImage("Moves:", 30, Color.black), 1415, 700);
     scene.placeImageXY(new TextImage(Integer.toString(0),
         30, Color.black), 1415, 740);
-    t.checkExpect(new MazeGenerator(3, 3, this.minimumSpanningTree, this.nodes).makeScene(),
-        scene);
+    t.checkExpect(this.testWorld.makeScene(), scene);
+  }
+  
+  // test drawing the maze into an image kept between frames
+  void testMazeCanvas(Tester t) {
+    this.initData();
+    byte[] states = new byte[9];
+    MazeCanvas canvas = new MazeCanvas(this.compact, states, 10);
+    ComputedPixelImage image = canvas.render();
+    t.checkExpect(image.width, 30);
+    t.checkExpect(canvas.allDirty, false);
+    t.checkExpect(image.getPixel(5, 5), Color.lightGray);
+    t.checkExpect(image.getPixel(5, 0), Color.black);
+    t.checkExpect(image.getPixel(0, 5), Color.black);
+    t.checkExpect(image.getPixel(9, 5), Color.lightGray);
+    t.checkExpect(image.getPixel(5, 9), Color.lightGray);
+    t.checkExpect(image.getPixel(18, 15), Color.lightGray);
+    t.checkExpect(image.getPixel(15, 11), Color.black);
+    t.checkExpect(image.getPixel(15, 19), Color.black);
+    
+    states[4] = 2;
+    canvas.mark(4);
+    canvas.mark(4);
+    t.checkExpect(canvas.dirtyUnits.size, 1);
+    // a cell that changes without being marked is not painted again
+    states[5] = 3;
+    canvas.render();
+    t.checkExpect(canvas.dirtyUnits.size, 0);
+    t.checkExpect(image.getPixel(15, 15), Node.colorOf(2));
+    t.checkExpect(image.getPixel(25, 15), Color.lightGray);
+    canvas.markAll();
+    canvas.mark(4);
+    t.checkExpect(canvas.dirtyUnits.size, 0);
+    canvas.render();
+    t.checkExpect(image.getPixel(25, 15), Color.green);
+    t.checkExpect(new MazeCanvas(this.compact, states, 5).image.width, 16);
+    t.checkExpect(new MazeCanvas(this.compact, states, 2, 1, 1).cellSize, 2);
+
+    // cells under two pixels are drawn as one pixel for each block of cells
+    MazeCanvas blocks = new MazeCanvas(this.compact, states, 1, 2, 2);
+    t.checkExpect(blocks.cellsPerPixel, 2);
+    t.checkExpect(blocks.unitCount(), 4);
+    image = blocks.render();
+    t.checkExpect(image.width, 2);
+    t.checkExpect(image.height, 2);
+    t.checkExpect(image.getPixel(0, 0), Node.colorOf(2));
+    t.checkExpect(image.getPixel(1, 0), Color.green);
+    t.checkExpect(image.getPixel(1, 1), new Color(96, 96, 96));
+    states[8] = 1;
+    blocks.mark(8);
+    t.checkExpect(blocks.dirtyUnits.size, 1);
+    blocks.render();
+    t.checkExpect(image.getPixel(1, 1), Node.colorOf(1));
+    t.checkExpect(MazeCanvas.rank(4) > MazeCanvas.rank(1), true);
+    t.checkExpect(MazeCanvas.rank(1) > MazeCanvas.rank(2), true);
+    t.checkExpect(MazeCanvas.rank(0), 0);
+    t.checkExpect(new MazeCanvas(new CompactMaze(2000, 10), new byte[20000], 0, 1280, 780)
+        .image.width, 1000);
+
+    this.testWorld.makeScene();
+    t.checkExpect(this.testWorld.canvas.allDirty, false);
+    this.testWorld.onKeyEvent("b");
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.canvas.dirtyUnits.size, 1);
+    // once the path is shown, ticks while the game waits paint nothing
+    this.testWorld.onKeyEvent("f");
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.pathShown, true);
+    this.testWorld.makeScene();
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.canvas.dirtyUnits.size, 0);
+    this.testWorld.onKeyEvent("r");
+    t.checkExpect(this.testWorld.canvas.allDirty, true);
+    t.checkExpect(this.testWorld.pathShown, false);
+    // a manual move paints the cell it leaves as well as the one it reaches
+    this.testWorld.makeScene();
+    int from = this.testWorld.currentPos;
+    this.testWorld.onKeyEvent(this.testWorld.maze.openDown(from) ? "down" : "right");
+    t.checkExpect(this.testWorld.canvas.dirtyUnits.size, 2);
+    this.testWorld.makeScene();
+    image = this.testWorld.canvas.image;
+    int size = this.testWorld.canvas.cellSize;
+    t.checkExpect(image.getPixel(size / 2, size / 2), Node.colorOf(2));
+    t.checkExpect(this.testWorld.states[from], (byte) 2);
+    this.testWorld.onKeyEvent("n");
+    t.checkExpect(this.testWorld.canvas, null);
   }
   
   // test bfs, dfs, and A*
@@ -702,6 +2013,8 @@ class ExamplesKruskal {
     this.testWorld.onKeyEvent("a");
     t.checkFail(this.testWorld, temp);
     this.testWorld.reset();
+    // the search is kept, so its path can still be saved or played again
+    temp.algType = new CellAStar(temp.maze, 0, 8);
     t.checkExpect(this.testWorld, temp);
     this.testWorld.reset();
     t.checkExpect(this.testWorld, temp);
@@ -728,12 +2041,106 @@ class ExamplesKruskal {
     this.testWorld.onKeyEvent("d");
     this.testWorld.onTick();
     t.checkExpect(this.testWorld.numberOfMoves, 1);
-    Node tempNode = this.testWorld.nodes.get(0);
-    t.checkExpect(this.testWorld.currentPos, tempNode);
+    t.checkExpect(this.testWorld.currentPos, 0);
+    t.checkExpect(this.testWorld.states[0], (byte) 2);
     this.testWorld.onTick();
     t.checkExpect(this.testWorld.numberOfMoves, 2);
-    tempNode = this.testWorld.nodes.get(1);
-    t.checkExpect(this.testWorld.currentPos, tempNode);
+    t.checkExpect(this.testWorld.currentPos, 3);
+  }
+  
+  // test ticking a search from both ends
+  void testOnTickBidirectional(Tester t) {
+    initData();
+    this.testWorld.onKeyEvent("B");
+    this.testWorld.onTick();
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.currentPos, this.testWorld.target);
+    t.checkExpect(this.testWorld.autoSolve, true);
+    for (int i = 0; i < 9 && this.testWorld.autoSolve; i++) {
+      this.testWorld.onTick();
+    }
+    t.checkExpect(this.testWorld.autoSolve, false);
+    t.checkExpect(this.testWorld.states[this.testWorld.start], (byte) 1);
+    t.checkExpect(this.testWorld.states[this.testWorld.target], (byte) 1);
+  }
+  
+  // test animating many steps a tick, finishing at once, and replaying
+  void testAnimate(Tester t) {
+    initData();
+    t.checkExpect(this.testWorld.animate(0, 0, false).stepsPerTick, 1);
+    this.testWorld.animate(4, 0, false);
+    this.testWorld.onKeyEvent("b");
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.numberOfMoves, 4);
+    t.checkExpect(this.testWorld.expansions.size, 4);
+    t.checkExpect(this.testWorld.autoSolve, true);
+    this.testWorld.onKeyEvent("p");
+    t.checkExpect(this.testWorld.numberOfMoves, 4);
+    this.testWorld.onKeyEvent("f");
+    t.checkExpect(this.testWorld.animating(), false);
+    int moves = this.testWorld.numberOfMoves;
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.autoSolve, false);
+    t.checkExpect(this.testWorld.states[this.testWorld.target], (byte) 1);
+    
+    // a replay shows the same expansions again without searching
+    this.testWorld.onKeyEvent("p");
+    t.checkExpect(this.testWorld.autoSolve, true);
+    t.checkExpect(this.testWorld.numberOfMoves, 0);
+    t.checkExpect(this.testWorld.states[this.testWorld.target], (byte) 4);
+    t.checkExpect(this.testWorld.expansions.size, moves);
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.numberOfMoves, 4);
+    t.checkExpect(this.testWorld.currentPos, this.testWorld.expansions.get(3));
+    this.testWorld.onKeyEvent("+");
+    t.checkExpect(this.testWorld.stepsPerTick, 8);
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.numberOfMoves, moves);
+    t.checkExpect(this.testWorld.autoSolve, false);
+    t.checkExpect(this.testWorld.states[this.testWorld.target], (byte) 1);
+    this.testWorld.onKeyEvent("-");
+    this.testWorld.onKeyEvent("-");
+    this.testWorld.onKeyEvent("-");
+    this.testWorld.onKeyEvent("-");
+    t.checkExpect(this.testWorld.stepsPerTick, 1);
+    this.testWorld.onKeyEvent("r");
+    t.checkExpect(this.testWorld.expansions.size, 0);
+    
+    // an instant search finishes in one tick
+    this.testWorld.animate(1, 0, true);
+    this.testWorld.onKeyEvent("d");
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.autoSolve, false);
+    t.checkExpect(this.testWorld.numberOfMoves, this.testWorld.expansions.size);
+    t.checkExpect(this.testWorld.states[this.testWorld.start], (byte) 1);
+    // only the search itself is instant, and playing it again is animated
+    moves = this.testWorld.numberOfMoves;
+    this.testWorld.onKeyEvent("p");
+    t.checkExpect(this.testWorld.replaying, true);
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.autoSolve, true);
+    t.checkExpect(this.testWorld.numberOfMoves, 1);
+    for (int i = 0; i < moves && this.testWorld.autoSolve; i++) {
+      this.testWorld.onTick();
+    }
+    t.checkExpect(this.testWorld.autoSolve, false);
+    t.checkExpect(this.testWorld.replaying, false);
+    t.checkExpect(this.testWorld.numberOfMoves, moves);
+    t.checkExpect(this.testWorld.states[this.testWorld.start], (byte) 1);
+    this.testWorld.onKeyEvent("r");
+    
+    // a search with a time budget takes as many steps as fit in it
+    initData();
+    this.testWorld.animate(1, 1000000000L, false);
+    this.testWorld.onKeyEvent("-");
+    t.checkExpect(this.testWorld.tickBudget, 500000000L);
+    this.testWorld.onKeyEvent("a");
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.autoSolve, false);
+    t.checkExpect(this.testWorld.states[this.testWorld.target], (byte) 1);
+    this.testWorld.onKeyEvent("r");
+    this.testWorld.onKeyEvent("p");
+    t.checkExpect(this.testWorld.autoSolve, false);
   }
   
   // test key event
@@ -747,21 +2154,21 @@ class ExamplesKruskal {
     this.testWorld.onKeyEvent("a");
     temp.lockKeyInputs = true;
     temp.autoSolve = true;
-    temp.algType = new AStar(temp.start, temp.target);
+    temp.algType = new CellAStar(temp.maze, temp.start, temp.target);
     t.checkExpect(this.testWorld, temp);
     initData();
     temp = new MazeGenerator(this.testWorld);
     this.testWorld.onKeyEvent("d");
     temp.lockKeyInputs = true;
     temp.autoSolve = true;
-    temp.algType = new Dfs(temp.start, temp.target);
+    temp.algType = new CellDfs(temp.maze, temp.start, temp.target);
     t.checkExpect(this.testWorld, temp);
     initData();
     temp = new MazeGenerator(this.testWorld);
     this.testWorld.onKeyEvent("b");
     temp.lockKeyInputs = true;
     temp.autoSolve = true;
-    temp.algType = new Bfs(temp.start, temp.target);
+    temp.algType = new CellBfs(temp.maze, temp.start, temp.target);
     t.checkExpect(this.testWorld, temp);
     initData();
     temp = new MazeGenerator(this.testWorld);
@@ -788,6 +2195,322 @@ class ExamplesKruskal {
     this.testWorld.onKeyEvent("right");
     t.checkExpect(this.testWorld.autoSolve, false);
     t.checkExpect(this.testWorld.lockKeyInputs, true);
+    initData();
+    temp = new MazeGenerator(this.testWorld);
+    this.testWorld.onKeyEvent("B");
+    temp.lockKeyInputs = true;
+    temp.autoSolve = true;
+    temp.algType = new CellBidirectional(new CellBfs(temp.maze, temp.start, temp.target),
+        new CellBfs(temp.maze, temp.target, temp.start), false);
+    t.checkExpect(this.testWorld, temp);
+    initData();
+    temp = new MazeGenerator(this.testWorld);
+    this.testWorld.onKeyEvent("A");
+    temp.lockKeyInputs = true;
+    temp.autoSolve = true;
+    temp.algType = new CellBidirectional(new CellAStar(temp.maze, temp.start, temp.target),
+        new CellAStar(temp.maze, temp.target, temp.start), false);
+    t.checkExpect(this.testWorld, temp);
+  }
+  
+  // EFFECT: wait up to five seconds for the pool to have the given number of mazes ready
+  void awaitPool(MazePool pool, int count) throws InterruptedException {
+    for (int i = 0; i < 500 && pool.ready.size() < count; i++) {
+      Thread.sleep(10);
+    }
+  }
+  
+  // test generating mazes ahead of time in the background
+  void testMazePool(Tester t) throws InterruptedException {
+    this.initData();
+    // a pooled maze takes its walls, its states and its image
+    t.checkExpect(MazeCanvas.bytes(3, 3, 10, 1, 1), 8L * 30 * 30 + 1 + 64);
+    t.checkExpect(MazeCanvas.bytes(2000, 10, 0, 1280, 780), 8L * 1000 * 6 + 625 + 64);
+    t.checkExpect(MazePool.bytes(32, 1), 72L + 32 + MazeGenerator.canvasBytes(32, 1));
+    t.checkExpect(MazePool.bytes(33, 1), 80L + 33 + MazeGenerator.canvasBytes(33, 1));
+    long bytes = MazePool.bytes(10, 10);
+    t.checkExpect(new MazePool(4, bytes - 1, new Random(1)).capacity(10, 10), 0);
+    t.checkExpect(new MazePool(4, 100 * bytes, new Random(1)).capacity(10, 10), 4);
+    t.checkExpect(new MazePool(4, 2 * bytes + 1, new Random(1)).capacity(10, 10), 2);
+    
+    MazePool pool = new MazePool(2, 64 << 20, new Random(1));
+    t.checkExpect(pool.take(), null);
+    t.checkExpect(pool.misses.sum(), 1L);
+    pool.target(4, 3, new KruskalGenerator());
+    this.awaitPool(pool, 2);
+    t.checkExpect(pool.ready.size(), 2);
+    PooledMaze ready = pool.take();
+    t.checkExpect(pool.hits.sum(), 1L);
+    t.checkExpect(ready.maze.width(), 4);
+    t.checkExpect(ready.maze.walls,
+        new KruskalGenerator().generate(4, 3, new Random(ready.seed)).walls);
+    // the maze comes with the states of a new game, already drawn
+    t.checkExpect(ready.states, MazeGenerator.freshStates(12));
+    t.checkExpect(ready.canvas.states == ready.states, true);
+    t.checkExpect(ready.canvas.allDirty, false);
+    
+    // new settings throw away the mazes of the old ones
+    pool.target(5, 5, new EllerGenerator());
+    this.awaitPool(pool, 1);
+    t.checkExpect(pool.take().maze.height(), 5);
+    // no maze fits in the memory cap, so nothing is generated ahead
+    pool.target(20000, 20000, new KruskalGenerator());
+    t.checkExpect(pool.filling, null);
+    t.checkExpect(pool.take(), null);
+    t.checkExpect(pool.misses.sum(), 2L);
+    pool.shutdown();
+    
+    // the game takes its new mazes from the pool once one is ready
+    MazePool gamePool = new MazePool(1, 64 << 20, new Random(2));
+    this.testWorld.usePool(gamePool);
+    t.checkExpect(gamePool.width, 3);
+    this.awaitPool(gamePool, 1);
+    PooledMaze next = gamePool.ready.peek();
+    this.testWorld.onKeyEvent("n");
+    t.checkExpect(gamePool.hits.sum(), 1L);
+    t.checkExpect(this.testWorld.seed, next.seed);
+    t.checkExpect(this.testWorld.maze, next.maze);
+    t.checkExpect(this.testWorld.states == next.states, true);
+    t.checkExpect(this.testWorld.canvas == next.canvas, true);
+    t.checkExpect(this.testWorld.currentPos, 0);
+    t.checkExpect(this.testWorld.algType, null);
+    gamePool.shutdown();
+  }
+
+  // test caching the paths of mazes already solved
+  void testSolutionCache(Tester t) throws IOException {
+    this.initData();
+    long fingerprint = SolutionCache.fingerprint(this.compact);
+    Path file = Files.createTempFile("maze", ".mzb");
+    MazeFile.write(file, this.compact, 77, "kruskal", new int[] {0, 3, 6, 7, 8});
+    MappedMaze loaded = new MappedMaze(file);
+    // the same maze has the same fingerprint however it is kept
+    t.checkExpect(SolutionCache.fingerprint(loaded), fingerprint);
+    t.checkFail(SolutionCache.fingerprint(new CompactMaze(3, 3)), fingerprint);
+    t.checkFail(SolutionCache.fingerprint(new KruskalGenerator().generate(3, 3,
+        new Random(1))), SolutionCache.fingerprint(new KruskalGenerator().generate(9, 1,
+        new Random(1))));
+
+    SolutionCache cache = new SolutionCache(2 * (1 + SolutionCache.ENTRY_BYTES));
+    t.checkExpect(cache.get(this.compact, fingerprint, 0, 8), null);
+    cache.putSaved(loaded, fingerprint);
+    t.checkExpect(cache.get(this.compact, fingerprint, 0, 8), new int[] {0, 3, 6, 7, 8});
+    // a path answers the way back as well
+    t.checkExpect(cache.get(this.compact, fingerprint, 8, 0), new int[] {8, 7, 6, 3, 0});
+    t.checkExpect(cache.get(this.compact, fingerprint + 1, 0, 8), null);
+    t.checkExpect(cache.hits, 2L);
+    t.checkExpect(cache.misses, 2L);
+    cache.put(fingerprint, 3, new int[] {5, 4, 3});
+    t.checkExpect(cache.bytes, 2L * (1 + SolutionCache.ENTRY_BYTES));
+    t.checkExpect(cache.get(this.compact, fingerprint, 3, 5), new int[] {3, 4, 5});
+    // the least recently used path makes room for a new one
+    cache.get(this.compact, fingerprint, 0, 8);
+    cache.put(fingerprint, 3, new int[] {1, 2});
+    t.checkExpect(cache.size(), 2);
+    t.checkExpect(cache.get(this.compact, fingerprint, 3, 5), null);
+    t.checkExpect(cache.get(this.compact, fingerprint, 0, 8), new int[] {0, 3, 6, 7, 8});
+    t.checkExpect(cache.get(this.compact, fingerprint, 2, 1), new int[] {2, 1});
+    // a path that would not fit on its own is not kept
+    SolutionCache tiny = new SolutionCache(SolutionCache.ENTRY_BYTES);
+    tiny.put(fingerprint, 3, new int[] {0, 1});
+    t.checkExpect(tiny.size(), 0);
+    t.checkExpect(tiny.bytes, 0L);
+    // a path that crosses a wall of the maze asked about is thrown away as a miss
+    t.checkExpect(SolutionCache.follows(this.compact, new int[] {0, 3, 6, 7, 8}, 0, 8), true);
+    t.checkExpect(SolutionCache.follows(this.compact, new int[] {0, 1, 4, 5, 8}, 0, 8), false);
+    t.checkExpect(SolutionCache.follows(this.compact, new int[] {2, 3}, 2, 3), false);
+    t.checkExpect(SolutionCache.follows(this.compact, new int[] {0, 1}, 0, 2), false);
+    SolutionCache corrupt = new SolutionCache(1 << 20);
+    corrupt.put(fingerprint, 3, new int[] {0, 1, 4, 5, 8});
+    t.checkExpect(corrupt.get(this.compact, fingerprint, 0, 8), null);
+    t.checkExpect(corrupt.misses, 1L);
+    t.checkExpect(corrupt.size(), 0);
+    t.checkExpect(corrupt.bytes, 0L);
+
+    // a batch solving a maze it has solved before takes the path from the cache
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BatchRunner batch = new BatchRunner(4, 3, 1, 5, "kruskal", "bfs", "csv",
+        new PrintStream(bytes)).useCache(new SolutionCache(1 << 20));
+    batch.run();
+    batch.run();
+    String[] lines = bytes.toString().split("\n");
+    t.checkExpect(lines[1].startsWith("0,5,4,3,kruskal,bfs,"), true);
+    t.checkExpect(lines[3].startsWith("0,5,4,3,kruskal,bfs:cache,"), true);
+    t.checkExpect(lines[1].split(",")[6], lines[3].split(",")[6]);
+    t.checkExpect(lines[3].split(",")[7], "0");
+
+    // the game shows the path of a maze it has solved at once, from any search
+    this.testWorld.useCache(new SolutionCache(1 << 20));
+    this.testWorld.onKeyEvent("b");
+    this.testWorld.onKeyEvent("f");
+    this.testWorld.onTick();
+    int[] solution = this.testWorld.solution();
+    t.checkExpect(this.testWorld.solutions.size(), 1);
+    // the path is kept once, when the search finishes, and not again on idle ticks
+    long worldPrint = this.testWorld.fingerprint;
+    this.testWorld.solutions.put(worldPrint, 3, new int[] {1, 2});
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.solutions.entries.keySet().iterator().next(),
+        new SolutionKey(worldPrint, 3, 0, 8));
+    this.testWorld.onKeyEvent("r");
+    this.testWorld.onKeyEvent("d");
+    t.checkFail(this.testWorld.path, null);
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.autoSolve, false);
+    t.checkExpect(this.testWorld.numberOfMoves, 0);
+    t.checkExpect(this.testWorld.solution(), solution);
+    t.checkExpect(this.testWorld.states[this.testWorld.target], (byte) 1);
+    t.checkExpect(this.testWorld.solutions.hits, 1L);
+    // a corrupted path is never shown, and the maze is searched instead
+    this.testWorld.onKeyEvent("r");
+    this.testWorld.solutions.put(worldPrint, 3, new int[] {0, 1, 2, 5, 4, 7, 8});
+    this.testWorld.onKeyEvent("b");
+    t.checkExpect(this.testWorld.path, null);
+    this.testWorld.onKeyEvent("f");
+    this.testWorld.onTick();
+    t.checkExpect(this.testWorld.solution(), solution);
+    // a new maze has to be searched
+    this.testWorld.onKeyEvent("n");
+    this.testWorld.onKeyEvent("a");
+    t.checkExpect(this.testWorld.path, null);
+
+    // a maze opened from a file with its solution never needs searching
+    MazeGenerator world = new MazeGenerator(loaded, new Random(1))
+        .useCache(new SolutionCache(1 << 20));
+    world.onKeyEvent("b");
+    t.checkFail(world.path, null);
+    world.onTick();
+    t.checkExpect(world.solution(), new int[] {0, 3, 6, 7, 8});
+  }
+
+  // test the buckets of the histogram
+  void testLogHistogram(Tester t) {
+    t.checkExpect(LogHistogram.bucket(0), 0);
+    t.checkExpect(LogHistogram.bucket(15), 15);
+    t.checkExpect(LogHistogram.bucket(16), 16);
+    t.checkExpect(LogHistogram.bucket(17), 16);
+    t.checkExpect(LogHistogram.bucket(18), 17);
+    t.checkExpect(LogHistogram.bucket(32), 24);
+    t.checkExpect(LogHistogram.bucket(Long.MAX_VALUE), LogHistogram.BUCKETS - 1);
+    t.checkExpect(LogHistogram.lower(17), 18L);
+    t.checkExpect(LogHistogram.upper(16), 18L);
+    t.checkExpect(LogHistogram.upper(LogHistogram.BUCKETS - 1), Long.MAX_VALUE);
+    // every bucket starts where the one before it ends
+    boolean contiguous = true;
+    for (int i = 0; i < LogHistogram.BUCKETS - 1; i++) {
+      contiguous = contiguous && LogHistogram.upper(i) == LogHistogram.lower(i + 1)
+          && LogHistogram.bucket(LogHistogram.lower(i)) == i
+          && LogHistogram.bucket(LogHistogram.upper(i) - 1) == i;
+    }
+    t.checkExpect(contiguous, true);
+    
+    LogHistogram h = new LogHistogram();
+    t.checkExpect(h.percentile(0.5), 0L);
+    h.record(-5);
+    for (int i = 1; i <= 100; i++) {
+      h.record(i);
+    }
+    t.checkExpect(h.count(), 101L);
+    t.checkExpect(h.sum(), 5050L);
+    t.checkExpect(h.max(), 100L);
+    t.checkExpect(h.percentile(0.0), 0L);
+    t.checkExpect(h.percentile(0.1), 10L);
+    t.checkExpect(h.percentile(0.5), 51L);
+    t.checkExpect(h.percentile(1.0), 100L);
+  }
+  
+  // test recording metrics and writing them out
+  void testMetrics(Tester t) throws IOException {
+    this.initData();
+    t.checkExpect(Metrics.ENABLED, false);
+    this.testWorld.onKeyEvent("b");
+    t.checkExpect(this.testWorld.cost, null);
+    t.checkExpect(Metrics.label("algorithm", "bfs"), "algorithm=\"bfs\"");
+    t.checkExpect(Metrics.series("a b=\"c\"", "_sum", ""), "a_sum{b=\"c\"}");
+    t.checkExpect(Metrics.series("a ", "_bucket", "le=\"1\""), "a_bucket{le=\"1\"}");
+    t.checkExpect(Metrics.series("a ", "", ""), "a");
+    
+    Metrics metrics = new Metrics();
+    String bfs = Metrics.label("algorithm", "bfs");
+    t.checkExpect(metrics.count("maze_solves_total", bfs), 0L);
+    metrics.recordSolve("bfs", 9, 1000, true);
+    metrics.recordSolve("bfs", 5, 2000, false);
+    t.checkExpect(metrics.count("maze_solves_total", bfs), 2L);
+    t.checkExpect(metrics.count("maze_solves_failed_total", bfs), 1L);
+    t.checkExpect(metrics.histogram("maze_solve_expanded", bfs).max(), 9L);
+    metrics.recordPhase("kruskal", "union", 7);
+    
+    SearchCost cost = new SearchCost();
+    cost.expanded = 7;
+    cost.stale = 1;
+    cost.peakWorklist = 5;
+    metrics.recordSearch("dfs", cost, 12);
+    String dfs = Metrics.label("algorithm", "dfs");
+    t.checkExpect(metrics.count("maze_search_expanded_total", dfs), 7L);
+    t.checkExpect(metrics.count("maze_search_stale_pops_total", dfs), 1L);
+    t.checkExpect(metrics.histogram("maze_search_came_from", dfs).max(), 12L);
+    
+    String text = metrics.prometheus();
+    t.checkExpect(text.startsWith("# TYPE maze_search_expanded_total counter\n"), true);
+    t.checkExpect(text.contains("maze_solves_total{algorithm=\"bfs\"} 2\n"), true);
+    t.checkExpect(text.contains("# TYPE maze_generate_phase_nanos histogram\n"
+        + "maze_generate_phase_nanos_bucket{generator=\"kruskal\",phase=\"union\",le=\"7\"} 1\n"
+        + "maze_generate_phase_nanos_bucket{generator=\"kruskal\",phase=\"union\",le=\"+Inf\"} "
+        + "1\n"), true);
+    t.checkExpect(text.contains("maze_solve_expanded_bucket{algorithm=\"bfs\",le=\"5\"} 1\n"
+        + "maze_solve_expanded_bucket{algorithm=\"bfs\",le=\"9\"} 2\n"), true);
+    t.checkExpect(text.contains("maze_solve_nanos_sum{algorithm=\"bfs\"} 3000\n"
+        + "maze_solve_nanos_count{algorithm=\"bfs\"} 2\n"), true);
+    
+    Path file = Files.createTempFile("metrics", ".prom");
+    metrics.dump(file);
+    t.checkExpect(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), text);
+    Files.delete(file);
+  }
+  
+  // test the flight recorder events of generating and solving mazes
+  void testFlightEvents(Tester t) throws IOException {
+    GenerationPhaseEvent phase = GenerationPhaseEvent.start("kruskal", "union", 3, 4);
+    t.checkExpect(phase.generator, "kruskal");
+    t.checkExpect(phase.phase, "union");
+    t.checkExpect(phase.height, 4);
+    // nothing is filled in for a recording that is not running
+    SolveEvent solve = SolveEvent.start("bfs", 3, 3);
+    solve.finish(new int[] {0, 1, 2}, 3);
+    t.checkExpect(solve.algorithm, "bfs");
+    t.checkExpect(solve.outcome, null);
+    
+    Recording recording = new Recording();
+    recording.enable("maze.GenerationPhase");
+    recording.enable("maze.Solve");
+    recording.start();
+    new BatchRunner(5, 5, 2, 7, "kruskal", "bfs", "csv",
+        new PrintStream(new ByteArrayOutputStream())).run();
+    recording.stop();
+    Path file = Files.createTempFile("maze", ".jfr");
+    recording.dump(file);
+    recording.close();
+    
+    ArrayList<String> phases = new ArrayList<String>();
+    ArrayList<String> solves = new ArrayList<String>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      if (event.getEventType().getName().equals("maze.GenerationPhase")) {
+        phases.add(event.getString("generator") + " " + event.getString("phase") + " "
+            + event.getInt("width") + "x" + event.getInt("height"));
+      } else if (event.getEventType().getName().equals("maze.Solve")) {
+        solves.add(event.getString("algorithm") + " " + event.getString("outcome") + " "
+            + event.getInt("pathLength") + " " + (event.getInt("expanded") > 0));
+      }
+    }
+    Files.delete(file);
+    Collections.sort(phases);
+    t.checkExpect(phases, new ArrayList<String>(Arrays.asList("kruskal carve 5x5",
+        "kruskal carve 5x5", "kruskal generate 5x5", "kruskal generate 5x5",
+        "kruskal shuffle 5x5", "kruskal shuffle 5x5", "kruskal union 5x5",
+        "kruskal union 5x5")));
+    t.checkExpect(solves.size(), 2);
+    t.checkExpect(solves.get(0).startsWith("bfs solved "), true);
+    t.checkExpect(solves.get(1).endsWith(" true"), true);
   }
   
   // play the full maze game
@@ -1,16 +1,28 @@
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 import javalib.impworld.*;
+import javalib.worldimages.ComputedPixelImage;
 import javalib.worldimages.TextImage;
 
 // representation of a random maze
+// the game keeps the maze as it was generated and the state of each cell in an array, so
+// it makes no object for any cell, and searches it with cell searches
 class MazeGenerator extends World {
-  ArrayList<Edge> edges;
-  ArrayList<Node> nodes;
+  IMaze maze;
+  IMazeGenerator generator;
+  // the seed the maze was generated from
+  long seed;
+  // the file the maze is saved to and loaded from
+  String file;
+  // the state of every cell as Node numbers them: 1 is on the path, 2 is explored, 3 is
+  // the start and 4 is the target
+  byte[] states;
   
-  Node currentPos;
-  Node start;
-  Node target;
+  int currentPos;
+  int start;
+  int target;
   Random rand;
   int numberOfMoves;
   
@@ -19,123 +31,437 @@ class MazeGenerator extends World {
   
   boolean autoSolve;
   boolean lockKeyInputs;
+  // has the path of the finished search been shown, so later ticks leave it alone
+  boolean pathShown;
   
-  // controls which algorithm to use to solve the maze
-  SearchAlg algType;
+  // controls which algorithm to use to solve the maze, or null before any solve starts
+  ICellStepper algType;
+  // the cells on the path from the start to the target the last solve found, or null
+  int[] path;
+  // what the current search has cost so far, or null if metrics are off
+  SearchCost cost;
   
+  // the image of the maze kept between frames, or null until the next frame draws it
+  MazeCanvas canvas;
   
+  // how many cells a search expands each tick, unless it has a time budget
+  int stepsPerTick;
+  // the nanoseconds a search may expand cells for each tick, or 0 to count steps instead
+  long tickBudget;
+  // does a search run to the end as soon as it starts
+  boolean instant;
+  // the cells the last search expanded, in order, so it can be played again
+  IntDeque expansions;
+  // how many of the expansions have been shown
+  int replayed;
+  // is the last search being played again, which is animated even when searches are
+  // instant
+  boolean replaying;
   
-  MazeGenerator(int width, int height, ArrayList<Edge> edges, ArrayList<Node> nodes) {
-    this.edges = edges;
-    this.nodes = nodes;
+  // the mazes generated ahead of time for the current settings, or null to generate each
+  // new maze when it is asked for
+  MazePool pool;
+  
+  // the paths of mazes already solved, or null to search every time
+  SolutionCache solutions;
+  // the fingerprint of the maze in the cache, only kept while there is a cache
+  long fingerprint;
+  
+  
+  MazeGenerator(int width, int height) {
     this.width = width;
     this.height = height;
     this.autoSolve = false;
     this.lockKeyInputs = false;
+    this.pathShown = false;
     this.numberOfMoves = 0;
+    this.generator = new KruskalGenerator();
+    this.file = "maze.mzb";
+    this.algType = null;
+    this.path = null;
+    this.cost = null;
+    this.stepsPerTick = 1;
+    this.tickBudget = 0;
+    this.instant = false;
+    this.expansions = new IntDeque();
+    this.replayed = 0;
+    this.replaying = false;
+    this.pool = null;
+    this.solutions = null;
+    this.fingerprint = 0;
   }
   
   // constructor for making copy
   MazeGenerator(MazeGenerator m) {
-    this.edges = m.edges;
-    this.nodes = m.nodes;
+    this.maze = m.maze;
+    this.generator = m.generator;
+    this.seed = m.seed;
+    this.file = m.file;
+    this.states = m.states;
     this.width = m.width;
     this.height = m.height;
     this.autoSolve = m.autoSolve;
     this.lockKeyInputs = m.lockKeyInputs;
+    this.pathShown = m.pathShown;
     this.numberOfMoves = m.numberOfMoves;
     this.currentPos = m.currentPos;
     this.start = m.start;
     this.target = m.target;
     this.rand = m.rand;
     this.algType = m.algType;
+    this.path = m.path;
+    this.cost = m.cost;
+    this.canvas = m.canvas;
+    this.stepsPerTick = m.stepsPerTick;
+    this.tickBudget = m.tickBudget;
+    this.instant = m.instant;
+    this.expansions = m.expansions;
+    this.replayed = m.replayed;
+    this.replaying = m.replaying;
+    this.pool = m.pool;
+    this.solutions = m.solutions;
+    this.fingerprint = m.fingerprint;
   }
   
-  MazeGenerator(int width, int height, Random rand) {
-    this(width, height, new ArrayList<Edge>(), new ArrayList<Node>());
+  MazeGenerator(int width, int height, Random rand, IMazeGenerator generator) {
+    this(width, height);
     this.rand = rand;
+    this.generator = generator;
     this.newMaze();
   }
   
+  MazeGenerator(int width, int height, Random rand) {
+    this(width, height, rand, new KruskalGenerator());
+  }
+  
+  // constructor for playing a maze loaded from a file
+  MazeGenerator(MappedMaze maze, Random rand) {
+    this(maze.width, maze.height);
+    this.rand = rand;
+    this.useFile(maze);
+  }
+  
+  // EFFECT: set how fast searches are animated and return this world
+  MazeGenerator animate(int stepsPerTick, long tickBudget, boolean instant) {
+    this.stepsPerTick = Math.max(1, stepsPerTick);
+    this.tickBudget = tickBudget;
+    this.instant = instant;
+    return this;
+  }
+  
   // progresses the state of the world each tick
   public void onTick() {
     if (this.autoSolve) {
-      this.currentPos = this.algType.next();
-      this.currentPos.setState(2);
-      this.numberOfMoves ++;
-    } 
-    if (this.currentPos.equals(this.target)) {
-      while (!this.algType.next().equals(this.target)) {
-        // loop algType.next() until the target finished
+      if (this.instant && !this.replaying) {
+        this.advance(Integer.MAX_VALUE, 0);
+      } else {
+        this.advance(this.stepsPerTick, this.tickBudget);
+      }
+    }
+    // a search from both ends expands the target long before it is solved
+    if (!this.pathShown && this.algType != null
+        && (this.autoSolve ? !this.animating() : this.currentPos == this.target)) {
+      if (this.path == null) {
+        // a manual solve shows the path the search that has not been stepped yet finds
+        while (!this.algType.isSolved() && !this.algType.emptyWorklist()) {
+          this.searchStep();
+        }
+        if (this.algType.isSolved()) {
+          this.path = this.algType.path();
+          this.recordSearch();
+          this.cachePath();
+        }
+      }
+      if (this.path != null) {
+        for (int cell : this.path) {
+          this.setState(cell, 1);
+        }
       }
-      this.algType.trace(currentPos);
-      this.target.setState(1);
       this.autoSolve = false;
+      this.replaying = false;
+      this.pathShown = true;
+    }
+  }
+  
+  // EFFECT: keep the path the last search found in the cache, if there is a cache
+  void cachePath() {
+    if (this.solutions != null && this.path != null) {
+      this.solutions.put(this.fingerprint, this.width, this.path);
+    }
+  }
+  
+  // EFFECT: give the search just started the path cached for the maze, if there is one, so
+  //         the next tick shows the path without searching
+  void useCachedPath() {
+    if (this.solutions != null) {
+      this.path = this.solutions.get(this.maze, this.fingerprint, this.start,
+          this.target);
+    }
+  }
+  
+  // EFFECT: record what the search that just found the path cost, if metrics are on
+  void recordSearch() {
+    if (Metrics.ENABLED) {
+      this.cost.expanded = this.algType.expanded();
+      this.cost.stale = this.algType.stale();
+      Metrics.REGISTRY.recordSearch(this.algType.name(), this.cost, this.algType.reached());
+    }
+  }
+  
+  // EFFECT: show the expansions left one at a time, at least one and then more until
+  //         either the given number of steps or, if it is not 0, the given nanoseconds are
+  //         used up
+  void advance(int steps, long budget) {
+    long deadline = System.nanoTime() + budget;
+    int done = 0;
+    while (this.animating()
+        && (done == 0 || (budget > 0 ? System.nanoTime() < deadline : done < steps))) {
+      this.step();
+      done++;
+    }
+  }
+  
+  // EFFECT: show the next cell the search expanded, from the recording while replaying, or
+  //         else by stepping the search and recording it
+  void step() {
+    if (this.replayed < this.expansions.size) {
+      this.currentPos = this.expansions.get(this.replayed);
+    } else {
+      this.currentPos = this.searchStep();
+      this.expansions.addLast(this.currentPos);
+    }
+    this.replayed++;
+    this.setState(this.currentPos, 2);
+    this.numberOfMoves ++;
+  }
+  
+  // returns the cell the search expanded
+  // EFFECT: step the search, timing it if metrics are on
+  int searchStep() {
+    if (Metrics.ENABLED) {
+      long start = System.nanoTime();
+      int cell = this.algType.next();
+      this.cost.nanos += System.nanoTime() - start;
+      this.cost.peakWorklist = Math.max(this.cost.peakWorklist, this.algType.worklistSize());
+      return cell;
+    }
+    return this.algType.next();
+  }
+  
+  // are there expansions left to show, either recorded or from a search that can go on
+  // and whose path is not known yet
+  boolean animating() {
+    return this.replayed < this.expansions.size
+        || (this.path == null && !this.algType.isSolved() && !this.algType.emptyWorklist());
+  }
+  
+  // EFFECT: show the last finished search again from the start
+  void replay() {
+    IntDeque recorded = this.expansions;
+    this.reset();
+    this.expansions = recorded;
+    this.replaying = true;
+    this.lockKeyInputs = true;
+    this.autoSolve = true;
+  }
+  
+  // EFFECT: start solving the maze with the given search, a step each tick unless it is
+  //         solved by hand, taking the path from the cache if the maze was solved before
+  void startSearch(ICellStepper search, boolean auto) {
+    this.algType = search;
+    this.path = null;
+    this.cost = Metrics.ENABLED ? new SearchCost() : null;
+    this.lockKeyInputs = true;
+    this.autoSolve = auto;
+    // a maze solved before shows its path at once, whichever search was asked for
+    if (auto) {
+      this.useCachedPath();
     }
   }
   
   // reset the maze
   void reset() {
+    Arrays.fill(this.states, (byte) 0);
+    this.states[this.start] = 3;
+    this.states[this.target] = 4;
+    if (this.canvas != null) {
+      this.canvas.markAll();
+    }
+    this.restart();
+  }
+  
+  // EFFECT: put the player back on the start with no moves made and no search running,
+  //         leaving the states of the cells alone
+  void restart() {
     this.currentPos = this.start;
     this.autoSolve = false;
     this.lockKeyInputs = false;
-    for (Node n : this.nodes) {
-      n.seen = false;
-      n.setState(0);
-    }
-    this.start.setState(3);
-    this.target.setState(4);
+    this.pathShown = false;
     this.numberOfMoves = 0;
+    this.expansions = new IntDeque();
+    this.replayed = 0;
+    this.replaying = false;
   }
   
-  // generate new maze
-  void newMaze() {
-    this.edges = new ArrayList<Edge>();
-    this.nodes = new ArrayList<Node>();
-    ArrayList<Integer> ints = new ArrayList<Integer>();
-    for (int i = 0; i < 2 * height * width - width - height; i++) {
-      ints.add(i);
-    }
-    
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        this.nodes.add(new Node(i, j,
-            Math.min(1500 / width,
-                     800 / height)));
-      }
+  // EFFECT: set the state of the cell and repaint it in the next frame
+  void setState(int cell, int state) {
+    this.states[cell] = (byte) state;
+    if (this.canvas != null) {
+      this.canvas.mark(cell);
     }
-    
-    // set the start and end nodes
-    this.nodes.get(0).setState(3);
-    this.nodes.get(this.nodes.size() - 1).setState(4);
-    
-    // add horizontal edges
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width - 1; j++) {
-        this.edges.add(new Edge(this.nodes.get(j + width * i), this.nodes.get(j + width * i + 1),
-                 ints.remove(this.rand.nextInt(ints.size()))));
+  }
+  
+  // the cell a move in the direction of the arrow key leads to from the given cell, or
+  // the cell itself if a wall is in the way
+  int moveFrom(int cell, String key) {
+    switch (key) {
+      case "up":
+        return cell >= this.width && this.maze.openDown(cell - this.width)
+            ? cell - this.width : cell;
+      case "down":
+        return this.maze.openDown(cell) ? cell + this.width : cell;
+      case "left":
+        return cell % this.width > 0 && this.maze.openRight(cell - 1) ? cell - 1 : cell;
+      case "right":
+        return this.maze.openRight(cell) ? cell + 1 : cell;
+      default:
+        return cell;
+    }
+  }
+  
+  // EFFECT: take new mazes from the pool, filling it for the current settings, and return
+  //         this world
+  MazeGenerator usePool(MazePool pool) {
+    this.pool = pool;
+    pool.target(this.width, this.height, this.generator);
+    return this;
+  }
+  
+  // EFFECT: answer solves of mazes already solved from the cache, keeping the paths of
+  //         the rest in it, and return this world
+  MazeGenerator useCache(SolutionCache solutions) {
+    this.solutions = solutions;
+    if (solutions != null && this.maze != null) {
+      this.fingerprint = SolutionCache.fingerprint(this.maze);
+      if (this.maze instanceof MappedMaze) {
+        solutions.putSaved((MappedMaze) this.maze, this.fingerprint);
       }
     }
-    
-    // add vertical edges
-    for (int i = 0; i < width; i++) {
-      for (int j = 0; j < height - 1; j++) {
-        this.edges.add(new Edge(this.nodes.get(i + width * j),
-            this.nodes.get(i + width * j + width),
-                 ints.remove(this.rand.nextInt(ints.size()))));
-      } 
-    }
-    this.edges = new Kruskal(this.nodes, this.edges).run();
-    
-    for (Node n : this.nodes) {
-      n.connect(this.edges);
-    }
-    
-    this.start = this.nodes.get(0);
-    this.currentPos = this.start;
-    this.target = this.nodes.get(this.nodes.size() - 1);
-    this.algType = new AStar(this.start, this.target);
-    this.reset();
+    return this;
+  }
+  
+  // generate new maze, or take one from the pool if it has one ready
+  void newMaze() {
+    PooledMaze ready = this.pool == null ? null : this.pool.take();
+    if (ready != null) {
+      this.seed = ready.seed;
+      this.maze = ready.maze;
+      // the pool drew the maze ahead, so nothing here takes time for each cell
+      this.showMaze(ready.states, ready.canvas);
+      return;
+    }
+    this.seed = this.rand.nextLong();
+    long start = Metrics.ENABLED ? System.nanoTime() : 0;
+    GenerationPhaseEvent phase = GenerationPhaseEvent.start(this.generator.name(), "generate",
+        this.width, this.height);
+    this.maze = this.generator.generate(this.width, this.height, new Random(this.seed));
+    phase.commit();
+    if (Metrics.ENABLED) {
+      Metrics.REGISTRY.recordPhase(this.generator.name(), "generate",
+          System.nanoTime() - start);
+    }
+    this.showMaze();
+  }
+  
+  // EFFECT: start playing the current maze afresh from its first cell to its last, drawing
+  //         it in the next frame
+  void showMaze() {
+    this.showMaze(MazeGenerator.freshStates(this.maze.cellCount()), null);
+  }
+  
+  // EFFECT: start playing the current maze from its first cell to its last with the given
+  //         states of a maze nobody has played, and its image if it was drawn already
+  void showMaze(byte[] states, MazeCanvas canvas) {
+    this.states = states;
+    this.canvas = canvas;
+    if (this.solutions != null) {
+      this.fingerprint = SolutionCache.fingerprint(this.maze);
+    }
+    this.start = 0;
+    this.target = states.length - 1;
+    this.algType = null;
+    this.path = null;
+    this.restart();
+  }
+  
+  // the states of the cells of a maze nobody has played, with only the start and target
+  static byte[] freshStates(int cells) {
+    byte[] states = new byte[cells];
+    states[0] = 3;
+    states[cells - 1] = 4;
+    return states;
+  }
+  
+  // the side of the cells the game draws a maze of the given size with, as big as fit in
+  // the window, or else under two pixels so they are drawn in blocks
+  static int cellSizeFor(int width, int height) {
+    return Math.min(1500 / width, 800 / height);
+  }
+  
+  // the image of the maze and its cell states as the game shows them, with the blocks of
+  // a maze too big for its cells to be drawn leaving the controls room
+  static MazeCanvas canvasFor(IMaze maze, byte[] states) {
+    return new MazeCanvas(maze, states,
+        MazeGenerator.cellSizeFor(maze.width(), maze.height()), 1280, 780);
+  }
+  
+  // the bytes the image canvasFor makes for a maze of the given size takes
+  static long canvasBytes(int width, int height) {
+    return MazeCanvas.bytes(width, height, MazeGenerator.cellSizeFor(width, height),
+        1280, 780);
+  }
+  
+  // EFFECT: play the maze from the file, generating the next new maze the way it was
+  void useFile(MappedMaze maze) {
+    this.maze = maze;
+    this.width = maze.width;
+    this.height = maze.height;
+    this.seed = maze.seed;
+    this.generator = Runner.makeGenerator(maze.generator);
+    if (this.pool != null) {
+      this.pool.target(this.width, this.height, this.generator);
+    }
+    this.showMaze();
+    // the solution saved with the maze is kept, so saving the maze again keeps it too
+    this.path = maze.solution();
+    if (this.solutions != null) {
+      this.solutions.putSaved(maze, this.fingerprint);
+    }
+  }
+  
+  // the cells on the path the last solve found, from the start to the target, or null
+  // if no solve has finished
+  int[] solution() {
+    return this.path;
+  }
+  
+  // EFFECT: save the maze, and its solution if there is one, to the file
+  void save() {
+    try {
+      MazeFile.write(Paths.get(this.file), this.maze, this.seed, this.generator.name(),
+          this.solution());
+    } catch (IOException e) {
+      System.err.println("Could not save " + this.file + ": " + e.getMessage());
+    }
+  }
+  
+  // EFFECT: replace the maze with the one saved in the file
+  void load() {
+    try {
+      this.useFile(new MappedMaze(Paths.get(this.file)));
+    } catch (IOException e) {
+      System.err.println("Could not load " + this.file + ": " + e.getMessage());
+    }
   }
   
   // handles key presses
@@ -146,37 +472,64 @@ class MazeGenerator extends World {
     if (key.equals("n")) {
       this.newMaze();
     }
+    if (key.equals("s")) {
+      this.save();
+    }
+    if (key.equals("l")) {
+      this.load();
+    }
+    if (key.equals("+") || key.equals("=")) {
+      this.stepsPerTick = (int) Math.min(Integer.MAX_VALUE, 2L * this.stepsPerTick);
+      this.tickBudget *= 2;
+    }
+    if (key.equals("-")) {
+      this.stepsPerTick = Math.max(1, this.stepsPerTick / 2);
+      this.tickBudget = this.tickBudget > 0 ? Math.max(1, this.tickBudget / 2) : 0;
+    }
+    if (key.equals("f") && this.autoSolve) {
+      this.advance(Integer.MAX_VALUE, 0);
+    }
+    if (key.equals("p") && !this.autoSolve && this.pathShown
+        && !this.expansions.isEmpty()) {
+      this.replay();
+    }
     if (!this.lockKeyInputs) {
       switch (key) {
         case "b":
-          this.algType = new Bfs(this.start, this.target);
-          this.lockKeyInputs = true;
-          this.autoSolve = true;
+          this.startSearch(new CellBfs(this.maze, this.start, this.target), true);
           break;
         case "d":
-          this.algType = new Dfs(this.start, this.target);
-          this.lockKeyInputs = true;
-          this.autoSolve = true;
+          this.startSearch(new CellDfs(this.maze, this.start, this.target), true);
           break;
         case "a":
-          this.algType = new AStar(this.nodes.get(0), this.nodes.get(this.nodes.size() - 1));
-          this.lockKeyInputs = true;
-          this.autoSolve = true;
+          this.startSearch(new CellAStar(this.maze, this.start, this.target), true);
+          break;
+        case "B":
+          this.startSearch(new CellBidirectional(new CellBfs(this.maze, this.start,
+              this.target), new CellBfs(this.maze, this.target, this.start), false), true);
+          break;
+        case "A":
+          this.startSearch(new CellBidirectional(new CellAStar(this.maze, this.start,
+              this.target), new CellAStar(this.maze, this.target, this.start), false), true);
           break;
         case "left":
         case "right":
         case "up":
         case "down":
-          this.autoSolve = false;
-          this.lockKeyInputs = true;
-          this.algType = new AStar(this.start, this.target);
+          this.startSearch(new CellAStar(this.maze, this.start, this.target), false);
           break;
         default:
           // do nothing for other keys
       }
     }
     if (!this.autoSolve && this.lockKeyInputs) {
-      this.currentPos =  this.currentPos.getNext(key);
+      // moving leaves the cell explored and puts the player on the next one
+      int next = this.moveFrom(this.currentPos, key);
+      if (next != this.currentPos) {
+        this.setState(this.currentPos, 2);
+        this.setState(next, 1);
+        this.currentPos = next;
+      }
       this.numberOfMoves ++;
     }
   }
@@ -184,17 +537,24 @@ class MazeGenerator extends World {
   // draws the current state of the maze
   public WorldScene makeScene() {
     WorldScene scene = new WorldScene(1500, 800);
-    for (Node n: nodes) {
-      scene.placeImageXY(n.drawNode(), 10, 10);
+    if (this.canvas == null) {
+      this.canvas = MazeGenerator.canvasFor(this.maze, this.states);
     }
+    ComputedPixelImage maze = this.canvas.render();
+    scene.placeImageXY(maze, 10 + maze.width / 2, 10 + maze.height / 2);
     scene.placeImageXY(new TextImage("Controls:", 30, Color.black), 1415, 100);
     scene.placeImageXY(new TextImage("New maze: n", 25, Color.black), 1415, 150);
-    scene.placeImageXY(new TextImage("Reset: r", 25, Color.black), 1415, 200);
+    scene.placeImageXY(new TextImage("Reset: r", 25, Color.black), 1415, 180);
+    scene.placeImageXY(new TextImage("Save, load: s, l", 25, Color.black), 1415, 210);
+    scene.placeImageXY(new TextImage("Speed: +, -", 25, Color.black), 1415, 240);
+    scene.placeImageXY(new TextImage("Finish, replay: f, p", 25, Color.black), 1415, 270);
     scene.placeImageXY(new TextImage("Breadth-first:", 25, Color.black), 1415, 300);
     scene.placeImageXY(new TextImage("b", 25, Color.black), 1415, 330);
     scene.placeImageXY(new TextImage("Depth-first:", 25, Color.black), 1415, 380);
     scene.placeImageXY(new TextImage("d", 25, Color.black), 1415, 410);
     scene.placeImageXY(new TextImage("A*: a", 25, Color.black), 1415, 460);
+    scene.placeImageXY(new TextImage("From both ends:", 25, Color.black), 1415, 510);
+    scene.placeImageXY(new TextImage("B, A", 25, Color.black), 1415, 540);
     scene.placeImageXY(new TextImage("Manual solve:", 25, Color.black), 1415, 600);
     scene.placeImageXY(new TextImage("Arrow Keys", 25, Color.black), 1415, 630);
     scene.placeImageXY(new TextImage("Moves:", 30, Color.black), 1415, 700);
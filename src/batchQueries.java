@@ -0,0 +1,318 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// answers many start and target queries on one maze at once
+// every query is searched from whichever of its ends more queries share, so one breadth
+// first distance field from a shared cell answers all of the queries that use it, and the
+// groups of queries sharing a cell are spread across the pool
+class BatchQueries {
+  IMaze maze;
+  ForkJoinPool pool;
+  // the distance fields no task is using, kept for the next tasks and batches so there are
+  // never more fields than tasks running at once
+  ConcurrentLinkedQueue<DistanceField> fields;
+
+  BatchQueries(IMaze maze, ForkJoinPool pool) {
+    this.maze = maze;
+    this.pool = pool;
+    this.fields = new ConcurrentLinkedQueue<DistanceField>();
+  }
+
+  BatchQueries(IMaze maze) {
+    this(maze, ForkJoinPool.commonPool());
+  }
+
+  // the distance between from[i] and to[i] for every i, and the path between them too if
+  // asked for
+  BatchResult solve(int[] from, int[] to, boolean withPaths) {
+    if (from.length != to.length) {
+      throw new IllegalArgumentException("Every start needs a target");
+    }
+    int count = from.length;
+    int[] uses = new int[this.maze.cellCount()];
+    for (int i = 0; i < count; i++) {
+      uses[from[i]]++;
+      uses[to[i]]++;
+    }
+    int[] sources = new int[count];
+    long[] keys = new long[count];
+    for (int i = 0; i < count; i++) {
+      sources[i] = uses[to[i]] > uses[from[i]] ? to[i] : from[i];
+      keys[i] = ((long) sources[i] << 32) | i;
+    }
+    Arrays.sort(keys);
+
+    // the queries in sorted order, and where each group of queries with the same source
+    // starts in that order
+    int[] order = new int[count];
+    int[] groups = new int[count + 1];
+    int groupCount = 0;
+    for (int i = 0; i < count; i++) {
+      order[i] = (int) keys[i];
+      if (i == 0 || (keys[i] >>> 32) != (keys[i - 1] >>> 32)) {
+        groups[groupCount] = i;
+        groupCount++;
+      }
+    }
+    groups[groupCount] = count;
+
+    BatchResult result = new BatchResult(count, withPaths);
+    if (groupCount > 0) {
+      int leafSize = Math.max(1, groupCount / (this.pool.getParallelism() * 4));
+      this.pool.invoke(new QueryTask(this, new QueryBatch(from, to, sources, order, groups),
+          result, 0, groupCount, leafSize));
+    }
+    return result;
+  }
+
+  // EFFECT: answer every query in the given range of groups, reusing one distance field
+  //         that no other task is using
+  void solveGroups(QueryBatch batch, BatchResult result, int low, int high) {
+    DistanceField field = this.fields.poll();
+    if (field == null) {
+      field = new DistanceField(this.maze);
+    }
+    for (int g = low; g < high; g++) {
+      int first = batch.groups[g];
+      int last = batch.groups[g + 1];
+      field.search(batch.sources[batch.order[first]], batch, first, last);
+      for (int i = first; i < last; i++) {
+        int query = batch.order[i];
+        int distance = field.distance(batch.otherEnd(query));
+        result.distances[query] = distance;
+        if (result.paths != null && distance != -1) {
+          int[] path = field.path(batch.from[query], batch.to[query]);
+          result.paths[query] = PathCodec.encode(path, this.maze.width());
+        }
+      }
+    }
+    this.fields.add(field);
+  }
+}
+
+// the queries of one batch sorted into groups that share a source
+class QueryBatch {
+  int[] from;
+  int[] to;
+  // the end of each query its group searches from
+  int[] sources;
+  // the queries sorted by source
+  int[] order;
+  // group g is the queries at positions groups[g] up to groups[g + 1] of order
+  int[] groups;
+
+  QueryBatch(int[] from, int[] to, int[] sources, int[] order, int[] groups) {
+    this.from = from;
+    this.to = to;
+    this.sources = sources;
+    this.order = order;
+    this.groups = groups;
+  }
+
+  // the end of the query that is not its source
+  int otherEnd(int query) {
+    return this.sources[query] == this.from[query] ? this.to[query] : this.from[query];
+  }
+}
+
+// the answers to a batch of queries, where distances[i] is the number of steps between the
+// ends of query i, or -1 if they are not connected, and paths[i] is its path packed by
+// PathCodec, or null if there is none or paths were not asked for
+class BatchResult {
+  int[] distances;
+  byte[][] paths;
+
+  BatchResult(int count, boolean withPaths) {
+    this.distances = new int[count];
+    this.paths = withPaths ? new byte[count][] : null;
+  }
+}
+
+// answers a range of groups of queries, splitting the range in half across the pool until
+// it is small enough to answer on one thread
+class QueryTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  BatchQueries queries;
+  QueryBatch batch;
+  BatchResult result;
+  int low;
+  int high;
+  int leafSize;
+
+  QueryTask(BatchQueries queries, QueryBatch batch, BatchResult result, int low, int high,
+      int leafSize) {
+    this.queries = queries;
+    this.batch = batch;
+    this.result = result;
+    this.low = low;
+    this.high = high;
+    this.leafSize = leafSize;
+  }
+
+  // EFFECT: answer every query in the groups of the range
+  protected void compute() {
+    if (this.high - this.low <= this.leafSize) {
+      this.queries.solveGroups(this.batch, this.result, this.low, this.high);
+    } else {
+      int middle = (this.low + this.high) / 2;
+      ForkJoinTask.invokeAll(
+          new QueryTask(this.queries, this.batch, this.result, this.low, middle,
+              this.leafSize),
+          new QueryTask(this.queries, this.batch, this.result, middle, this.high,
+              this.leafSize));
+    }
+  }
+}
+
+// the breadth first distances from one cell to the others, kept in arrays that are reused
+// from search to search by stamping each cell with the number of the search that reached it
+class DistanceField {
+  IMaze maze;
+  // the search that last reached each cell
+  int[] reachedBy;
+  // the search that last wanted each cell as a target
+  int[] wantedBy;
+  int[] distances;
+  int[] cameFrom;
+  int[] queue;
+  int[] neighbors;
+  int search;
+  int source;
+
+  DistanceField(IMaze maze) {
+    this.maze = maze;
+    this.reachedBy = new int[maze.cellCount()];
+    this.wantedBy = new int[maze.cellCount()];
+    this.distances = new int[maze.cellCount()];
+    this.cameFrom = new int[maze.cellCount()];
+    this.queue = new int[maze.cellCount()];
+    this.neighbors = new int[4];
+    this.search = 0;
+    this.source = -1;
+  }
+
+  // EFFECT: search out from the source until every other end of the queries at the given
+  //         positions of the batch is reached
+  void search(int source, QueryBatch batch, int first, int last) {
+    this.search++;
+    this.source = source;
+    int remaining = 0;
+    for (int i = first; i < last; i++) {
+      int target = batch.otherEnd(batch.order[i]);
+      if (this.wantedBy[target] != this.search) {
+        this.wantedBy[target] = this.search;
+        remaining++;
+      }
+    }
+
+    this.reachedBy[source] = this.search;
+    this.distances[source] = 0;
+    this.cameFrom[source] = source;
+    if (this.wantedBy[source] == this.search) {
+      remaining--;
+    }
+    int head = 0;
+    int tail = 0;
+    this.queue[tail] = source;
+    tail++;
+    while (head < tail && remaining > 0) {
+      int cell = this.queue[head];
+      head++;
+      int count = this.maze.neighbors(cell, this.neighbors);
+      for (int i = 0; i < count; i++) {
+        int n = this.neighbors[i];
+        if (this.reachedBy[n] != this.search) {
+          this.reachedBy[n] = this.search;
+          this.distances[n] = this.distances[cell] + 1;
+          this.cameFrom[n] = cell;
+          this.queue[tail] = n;
+          tail++;
+          if (this.wantedBy[n] == this.search) {
+            remaining--;
+          }
+        }
+      }
+    }
+  }
+
+  // the distance from the source to the cell, or -1 if the last search did not reach it
+  int distance(int cell) {
+    return this.reachedBy[cell] == this.search ? this.distances[cell] : -1;
+  }
+
+  // the cells on the path from one cell to the other, one of which must be the source
+  int[] path(int from, int to) {
+    boolean outward = from == this.source;
+    int cell = outward ? to : from;
+    int[] path = new int[this.distances[cell] + 1];
+    for (int i = 0; i < path.length; i++) {
+      path[outward ? path.length - 1 - i : i] = cell;
+      cell = this.cameFrom[cell];
+    }
+    return path;
+  }
+}
+
+// packs a path of adjacent cells into two bits per step, the direction of each move, four
+// steps to a byte
+// a path is then its first cell, its number of steps and the packed moves
+class PathCodec {
+  static final int UP = 0;
+  static final int LEFT = 1;
+  static final int RIGHT = 2;
+  static final int DOWN = 3;
+
+  // the moves along the path packed into bytes
+  static byte[] encode(int[] path, int width) {
+    int steps = path.length - 1;
+    byte[] moves = new byte[(steps + 3) / 4];
+    for (int i = 0; i < steps; i++) {
+      moves[i >>> 2] |= PathCodec.direction(path[i], path[i + 1], width) << ((i & 3) << 1);
+    }
+    return moves;
+  }
+
+  // the cells on the path with the given start, number of steps and packed moves
+  static int[] decode(int start, int steps, byte[] moves, int width) {
+    int[] path = new int[steps + 1];
+    path[0] = start;
+    for (int i = 0; i < steps; i++) {
+      int move = (moves[i >>> 2] >>> ((i & 3) << 1)) & 3;
+      path[i + 1] = path[i] + PathCodec.offset(move, width);
+    }
+    return path;
+  }
+
+  // the direction of the move from one cell to the next
+  static int direction(int from, int to, int width) {
+    if (to == from - width) {
+      return UP;
+    } else if (to == from - 1) {
+      return LEFT;
+    } else if (to == from + 1) {
+      return RIGHT;
+    } else if (to == from + width) {
+      return DOWN;
+    } else {
+      throw new IllegalArgumentException("Cells are not adjacent");
+    }
+  }
+
+  // the change in cell index of a move in the given direction
+  static int offset(int direction, int width) {
+    switch (direction) {
+      case UP:
+        return -width;
+      case LEFT:
+        return -1;
+      case RIGHT:
+        return 1;
+      default:
+        return width;
+    }
+  }
+}
@@ -0,0 +1,579 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// a solver for the path between two cells of a maze
+interface ICellSolver {
+  // find the cells on the path from the start to the target, or null if there is none
+  int[] solve();
+
+  // the number of cells expanded so far
+  int expanded();
+
+  // EFFECT: ask the solver, from any thread, to stop at its next step, after which solve
+  //         returns null unless it has already found the path
+  void cancel();
+}
+
+// a cell solver that can also be stepped through one cell at a time, as the game animates
+// its searches
+interface ICellStepper extends ICellSolver {
+  // returns the cell expanded by this step, or the target once the search is over
+  // EFFECT: progress the search by one step
+  int next();
+
+  // has the search found the target
+  boolean isSolved();
+
+  // is there nothing left for the search to expand
+  boolean emptyWorklist();
+
+  // the number of cells waiting to be expanded
+  int worklistSize();
+
+  // the number of cells the search has found a way to
+  int reached();
+
+  // the number of cells taken off the worklist that had already been expanded
+  int stale();
+
+  // the cells on the path from the start to the target, once the search is solved
+  int[] path();
+
+  // the name of the search in metrics
+  String name();
+}
+
+// a growable double ended queue of cells
+class IntDeque {
+  int[] items;
+  int head;
+  int size;
+
+  IntDeque() {
+    this.items = new int[16];
+    this.head = 0;
+    this.size = 0;
+  }
+
+  // is the deque empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // EFFECT: add the cell to the back of the deque
+  void addLast(int cell) {
+    if (this.size == this.items.length) {
+      this.grow();
+    }
+    this.items[(this.head + this.size) % this.items.length] = cell;
+    this.size++;
+  }
+
+  // EFFECT: add the cell to the front of the deque
+  void addFirst(int cell) {
+    if (this.size == this.items.length) {
+      this.grow();
+    }
+    this.head = (this.head + this.items.length - 1) % this.items.length;
+    this.items[this.head] = cell;
+    this.size++;
+  }
+
+  // remove and return the cell at the front of the deque
+  int removeFirst() {
+    if (this.size == 0) {
+      throw new IllegalStateException("The deque is empty");
+    }
+    int cell = this.items[this.head];
+    this.head = (this.head + 1) % this.items.length;
+    this.size--;
+    return cell;
+  }
+
+  // the cell at the given position from the front of the deque
+  int get(int i) {
+    return this.items[(this.head + i) % this.items.length];
+  }
+
+  // the cells in the deque from front to back
+  int[] toArray() {
+    int[] cells = new int[this.size];
+    for (int i = 0; i < this.size; i++) {
+      cells[i] = this.get(i);
+    }
+    return cells;
+  }
+
+  // EFFECT: double the capacity of the deque, keeping its order
+  void grow() {
+    int[] bigger = new int[this.items.length * 2];
+    for (int i = 0; i < this.size; i++) {
+      bigger[i] = this.items[(this.head + i) % this.items.length];
+    }
+    this.items = bigger;
+    this.head = 0;
+  }
+}
+
+// a search over the cells of a maze that can step through the search, like SearchAlg
+// but without any Node objects
+// the search only reads the maze and keeps all of its state itself, so many searches can
+// run on one maze at once from different threads
+abstract class CellSearch implements ICellStepper {
+  IMaze maze;
+  int from;
+  int to;
+  // one bit per cell, set once the cell is expanded
+  long[] seen;
+  // the cell each cell was reached from, or -1 if it has not been reached
+  int[] cameFrom;
+  // the length of the path through cameFrom from the start to each reached cell
+  int[] distances;
+  int[] neighbors;
+  int expanded;
+  int reached;
+  int stale;
+  boolean solved;
+  // set once the search is asked to stop, from any thread
+  volatile boolean cancelled;
+
+  CellSearch(IMaze maze, int from, int to) {
+    this.maze = maze;
+    this.from = from;
+    this.to = to;
+    this.seen = new long[(maze.cellCount() + 63) / 64];
+    this.cameFrom = new int[maze.cellCount()];
+    for (int i = 0; i < this.cameFrom.length; i++) {
+      this.cameFrom[i] = -1;
+    }
+    this.cameFrom[from] = from;
+    this.distances = new int[maze.cellCount()];
+    this.neighbors = new int[4];
+    this.expanded = 0;
+    this.reached = 1;
+    this.stale = 0;
+    this.solved = false;
+    this.cancelled = false;
+  }
+
+  // add the cell to the worklist
+  abstract void addToWorklist(int cell);
+
+  // remove the next cell from the worklist
+  abstract int removeFromWorklist();
+
+  // is the worklist empty
+  public abstract boolean emptyWorklist();
+
+  // the number of cells on the worklist
+  public abstract int worklistSize();
+
+  // EFFECT: record that the cell was reached from the given expanded cell
+  //         and add it to the worklist
+  void reach(int cell, int parent) {
+    if (this.cameFrom[cell] == -1) {
+      this.reached++;
+    }
+    this.cameFrom[cell] = parent;
+    this.distances[cell] = this.distances[parent] + 1;
+    this.addToWorklist(cell);
+  }
+
+  // has the given cell been expanded
+  boolean isSeen(int cell) {
+    return (this.seen[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // returns the cell expanded by this step, or the target if the search is over
+  // EFFECT: progress the search by one step
+  public int next() {
+    if (this.emptyWorklist()) {
+      return this.to;
+    }
+    int next = this.removeFromWorklist();
+
+    if (next == this.to) {
+      this.solved = true;
+      return next;
+    } else if (this.isSeen(next)) {
+      this.stale++;
+      return next;
+    } else {
+      int count = this.maze.neighbors(next, this.neighbors);
+      for (int i = 0; i < count; i++) {
+        int n = this.neighbors[i];
+        if (!this.isSeen(n)) {
+          this.reach(n, next);
+        }
+      }
+      this.seen[next >>> 6] |= 1L << next;
+      this.expanded++;
+      return next;
+    }
+  }
+
+  // the cells on the path from the start to the given cell
+  int[] trace(int last) {
+    int length = 1;
+    for (int cell = last; cell != this.from; cell = this.cameFrom[cell]) {
+      length++;
+    }
+    int[] path = new int[length];
+    for (int i = length - 1; i >= 0; i--) {
+      path[i] = last;
+      last = this.cameFrom[last];
+    }
+    return path;
+  }
+
+  public int[] solve() {
+    while (!this.solved && !this.cancelled && !this.emptyWorklist()) {
+      this.next();
+    }
+    if (this.solved) {
+      return this.trace(this.to);
+    } else {
+      return null;
+    }
+  }
+
+  public boolean isSolved() {
+    return this.solved;
+  }
+
+  public int[] path() {
+    return this.trace(this.to);
+  }
+
+  public int expanded() {
+    return this.expanded;
+  }
+
+  public int reached() {
+    return this.reached;
+  }
+
+  public int stale() {
+    return this.stale;
+  }
+
+  public void cancel() {
+    this.cancelled = true;
+  }
+}
+
+// a breadth first search over cells
+class CellBfs extends CellSearch {
+  IntDeque worklist;
+
+  CellBfs(IMaze maze, int from, int to) {
+    super(maze, from, to);
+    this.worklist = new IntDeque();
+    this.worklist.addLast(from);
+  }
+
+  // add to the back of the queue
+  void addToWorklist(int cell) {
+    this.worklist.addLast(cell);
+  }
+
+  // remove from the front of the queue
+  int removeFromWorklist() {
+    return this.worklist.removeFirst();
+  }
+
+  public boolean emptyWorklist() {
+    return this.worklist.isEmpty();
+  }
+
+  public int worklistSize() {
+    return this.worklist.size;
+  }
+
+  public String name() {
+    return "bfs";
+  }
+}
+
+// a depth first search over cells
+class CellDfs extends CellSearch {
+  IntDeque worklist;
+
+  CellDfs(IMaze maze, int from, int to) {
+    super(maze, from, to);
+    this.worklist = new IntDeque();
+    this.worklist.addFirst(from);
+  }
+
+  // add to the top of the stack
+  void addToWorklist(int cell) {
+    this.worklist.addFirst(cell);
+  }
+
+  // remove from the top of the stack
+  int removeFromWorklist() {
+    return this.worklist.removeFirst();
+  }
+
+  public boolean emptyWorklist() {
+    return this.worklist.isEmpty();
+  }
+
+  public int worklistSize() {
+    return this.worklist.size;
+  }
+
+  public String name() {
+    return "dfs";
+  }
+}
+
+// A* search over cells using Manhattan distance from the target as the heuristic
+// the worklist is a bucket queue of cells by estimated total distance, where each bucket is
+// a doubly linked list threaded through int arrays, so expanding a cell never allocates
+// moving one step changes the heuristic by one, so every estimate in the worklist is
+// within two of the lowest, and four buckets reused in a ring are enough
+class CellAStar extends CellSearch {
+  // the first cell in each bucket, or -1 if it is empty
+  int[] heads;
+  // the cells after and before each cell in its bucket, or -1 at either end
+  int[] nextInBucket;
+  int[] prevInBucket;
+  // one bit per cell, set while the cell is in the worklist
+  long[] queued;
+  // the lowest estimate that could still be in the worklist
+  int lowest;
+  int size;
+
+  CellAStar(IMaze maze, int from, int to) {
+    super(maze, from, to);
+    this.heads = new int[] {-1, -1, -1, -1};
+    this.nextInBucket = new int[maze.cellCount()];
+    this.prevInBucket = new int[maze.cellCount()];
+    this.queued = new long[(maze.cellCount() + 63) / 64];
+    this.lowest = maze.distance(from, to);
+    this.size = 0;
+    this.addToWorklist(from);
+  }
+
+  // the estimated length of a path from the start to the target through the cell
+  int estimate(int cell) {
+    return this.distances[cell] + this.maze.distance(cell, this.to);
+  }
+
+  // is the cell in the worklist
+  boolean isQueued(int cell) {
+    return (this.queued[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // EFFECT: record the cell as reached from the parent if that is a shorter way to it,
+  //         moving it to the bucket of its new estimate
+  void reach(int cell, int parent) {
+    int dist = this.distances[parent] + 1;
+    if (this.cameFrom[cell] == -1 || dist < this.distances[cell]) {
+      if (this.cameFrom[cell] == -1) {
+        this.reached++;
+      }
+      if (this.isQueued(cell)) {
+        this.unlink(cell);
+      }
+      this.cameFrom[cell] = parent;
+      this.distances[cell] = dist;
+      this.addToWorklist(cell);
+    }
+  }
+
+  // EFFECT: add the cell to the front of the bucket for its estimate
+  void addToWorklist(int cell) {
+    int bucket = this.estimate(cell) & 3;
+    this.prevInBucket[cell] = -1;
+    this.nextInBucket[cell] = this.heads[bucket];
+    if (this.heads[bucket] != -1) {
+      this.prevInBucket[this.heads[bucket]] = cell;
+    }
+    this.heads[bucket] = cell;
+    this.queued[cell >>> 6] |= 1L << cell;
+    this.size++;
+  }
+
+  // EFFECT: take the cell out of its bucket
+  void unlink(int cell) {
+    int bucket = this.estimate(cell) & 3;
+    if (this.prevInBucket[cell] == -1) {
+      this.heads[bucket] = this.nextInBucket[cell];
+    } else {
+      this.nextInBucket[this.prevInBucket[cell]] = this.nextInBucket[cell];
+    }
+    if (this.nextInBucket[cell] != -1) {
+      this.prevInBucket[this.nextInBucket[cell]] = this.prevInBucket[cell];
+    }
+    this.queued[cell >>> 6] &= ~(1L << cell);
+    this.size--;
+  }
+
+  // remove the most recently added cell with the lowest estimated total distance
+  int removeFromWorklist() {
+    if (this.size == 0) {
+      throw new IllegalStateException("The worklist is empty");
+    }
+    while (this.heads[this.lowest & 3] == -1) {
+      this.lowest++;
+    }
+    int cell = this.heads[this.lowest & 3];
+    this.unlink(cell);
+    return cell;
+  }
+
+  public boolean emptyWorklist() {
+    return this.size == 0;
+  }
+
+  public int worklistSize() {
+    return this.size;
+  }
+
+  public String name() {
+    return "astar";
+  }
+}
+
+// a search that grows one cell search forward from the start and another backward from
+// the target until they meet, either taking turns or on two threads at once
+// only taking turns can be stepped through
+class CellBidirectional implements ICellStepper {
+  CellSearch forward;
+  CellSearch backward;
+  boolean parallel;
+  // the cell where the two searches met, or -1 if they have not
+  int meeting;
+  // is it the forward search's turn
+  boolean forwardTurn;
+
+  CellBidirectional(CellSearch forward, CellSearch backward, boolean parallel) {
+    if (forward.from != backward.to || forward.to != backward.from) {
+      throw new IllegalArgumentException("The searches must run between the same cells");
+    }
+    this.forward = forward;
+    this.backward = backward;
+    this.parallel = parallel;
+    this.meeting = -1;
+    this.forwardTurn = true;
+  }
+
+  public int[] solve() {
+    if (this.parallel) {
+      this.solveParallel();
+    } else {
+      this.solveInTurns();
+    }
+    if (this.meeting == -1) {
+      return null;
+    }
+    return this.path();
+  }
+
+  // the cells on the path from the start to the meeting and on to the target, once the
+  // searches have met
+  public int[] path() {
+    int[] there = this.forward.trace(this.meeting);
+    int[] back = this.backward.trace(this.meeting);
+    int[] path = new int[there.length + back.length - 1];
+    System.arraycopy(there, 0, path, 0, there.length);
+    for (int i = 1; i < back.length; i++) {
+      path[there.length + i - 1] = back[back.length - 1 - i];
+    }
+    return path;
+  }
+
+  // EFFECT: step the two searches in turns until one expands a cell the other has reached
+  void solveInTurns() {
+    while (this.meeting == -1 && !this.forward.cancelled && !this.emptyWorklist()) {
+      this.next();
+    }
+  }
+
+  // returns the cell expanded by this step, or the target once the searches have met or
+  // run out of cells
+  // EFFECT: progress whichever search's turn it is by one step
+  public int next() {
+    if (this.meeting != -1 || this.emptyWorklist()) {
+      return this.forward.to;
+    }
+    CellSearch side;
+    CellSearch other;
+    if ((this.forwardTurn && !this.forward.emptyWorklist()) || this.backward.emptyWorklist()) {
+      side = this.forward;
+      other = this.backward;
+    } else {
+      side = this.backward;
+      other = this.forward;
+    }
+    this.forwardTurn = !this.forwardTurn;
+    int next = side.next();
+    if (other.cameFrom[next] != -1) {
+      this.meeting = next;
+    }
+    return next;
+  }
+
+  public boolean isSolved() {
+    return this.meeting != -1;
+  }
+
+  // are both worklists empty
+  public boolean emptyWorklist() {
+    return this.forward.emptyWorklist() && this.backward.emptyWorklist();
+  }
+
+  public int worklistSize() {
+    return this.forward.worklistSize() + this.backward.worklistSize();
+  }
+
+  public int reached() {
+    return this.forward.reached() + this.backward.reached();
+  }
+
+  public int stale() {
+    return this.forward.stale() + this.backward.stale();
+  }
+
+  public String name() {
+    return "bidirectional-" + this.forward.name();
+  }
+
+  // EFFECT: run each search on its own thread until both have expanded the same cell,
+  //         which every cell is claimed by the first search to expand it to detect
+  void solveParallel() {
+    AtomicIntegerArray claims = new AtomicIntegerArray(this.forward.maze.cellCount());
+    AtomicInteger met = new AtomicInteger(-1);
+    Thread backwardThread = new Thread(() -> this.race(this.backward, 2, claims, met));
+    backwardThread.start();
+    this.race(this.forward, 1, claims, met);
+    try {
+      backwardThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    this.meeting = met.get();
+  }
+
+  // EFFECT: step the search until the searches meet or it runs out of cells, claiming
+  //         every cell it expands for the given side
+  void race(CellSearch side, int id, AtomicIntegerArray claims, AtomicInteger met) {
+    while (met.get() == -1 && !side.cancelled && !side.emptyWorklist()) {
+      int next = side.next();
+      if (!claims.compareAndSet(next, 0, id) && claims.get(next) != id) {
+        met.compareAndSet(-1, next);
+      }
+    }
+  }
+
+  public int expanded() {
+    return this.forward.expanded() + this.backward.expanded();
+  }
+
+  public void cancel() {
+    this.forward.cancel();
+    this.backward.cancel();
+  }
+}
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// a maze of width * height cells, each identified by its dense index (row * width + col)
+interface IMaze {
+  // the number of columns in the maze
+  int width();
+
+  // the number of rows in the maze
+  int height();
+
+  // is there a passage from the given cell to the cell on its right
+  boolean openRight(int cell);
+
+  // is there a passage from the given cell to the cell below it
+  boolean openDown(int cell);
+
+  // the number of cells in the maze
+  default int cellCount() {
+    return this.width() * this.height();
+  }
+
+  // is there a passage from the given cell to the cell on its left
+  default boolean openLeft(int cell) {
+    return cell % this.width() != 0 && this.openRight(cell - 1);
+  }
+
+  // is there a passage from the given cell to the cell above it
+  default boolean openUp(int cell) {
+    return cell >= this.width() && this.openDown(cell - this.width());
+  }
+
+  // the number of open passages out of the given cell
+  default int degree(int cell) {
+    int count = 0;
+    if (this.openUp(cell)) {
+      count++;
+    }
+    if (this.openLeft(cell)) {
+      count++;
+    }
+    if (this.openRight(cell)) {
+      count++;
+    }
+    if (this.openDown(cell)) {
+      count++;
+    }
+    return count;
+  }
+
+  // the Manhattan distance between two cells
+  default int distance(int a, int b) {
+    return Math.abs(a / this.width() - b / this.width())
+        + Math.abs(a % this.width() - b % this.width());
+  }
+
+  // EFFECT: write the cells reachable in one step from the given cell into out,
+  //         which must have room for four cells
+  // returns the number of cells written
+  default int neighbors(int cell, int[] out) {
+    int count = 0;
+    if (this.openUp(cell)) {
+      out[count] = cell - this.width();
+      count++;
+    }
+    if (this.openLeft(cell)) {
+      out[count] = cell - 1;
+      count++;
+    }
+    if (this.openRight(cell)) {
+      out[count] = cell + 1;
+      count++;
+    }
+    if (this.openDown(cell)) {
+      out[count] = cell + this.width();
+      count++;
+    }
+    return count;
+  }
+
+  // EFFECT: send each row of this maze to the sink, from the top row down
+  default void emitRows(IRowSink sink) {
+    boolean[] right = new boolean[this.width()];
+    boolean[] down = new boolean[this.width()];
+    for (int row = 0; row < this.height(); row++) {
+      for (int i = 0; i < this.width(); i++) {
+        right[i] = this.openRight(row * this.width() + i);
+        down[i] = this.openDown(row * this.width() + i);
+      }
+      sink.acceptRow(row, right, down);
+    }
+  }
+}
+
+// a maze stored as two bits per cell, whether its right and bottom sides are open
+class CompactMaze implements IMaze, IRowSink {
+  int width;
+  int height;
+  // cell i uses bit 2 * (i % 32) for its right side and the bit after it for its bottom
+  // side, in word i / 32
+  long[] walls;
+
+  CompactMaze(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.walls = new long[(int) (((long) width * height + 31) / 32)];
+  }
+
+  // EFFECT: throw if a maze of the given size could not be made, so a generator fails
+  //         before it starts any work
+  static void checkSize(int width, int height) {
+    if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Bad maze size: " + width + "x" + height);
+    }
+  }
+
+  public int width() {
+    return this.width;
+  }
+
+  public int height() {
+    return this.height;
+  }
+
+  public boolean openRight(int cell) {
+    return ((this.walls[cell >>> 5] >>> ((cell & 31) << 1)) & 1L) != 0;
+  }
+
+  public boolean openDown(int cell) {
+    return ((this.walls[cell >>> 5] >>> ((cell & 31) << 1)) & 2L) != 0;
+  }
+
+  // EFFECT: open the passage between two adjacent cells
+  void carve(int a, int b) {
+    int low = Math.min(a, b);
+    int high = Math.max(a, b);
+    if (high == low + 1 && high % this.width != 0) {
+      this.walls[low >>> 5] |= 1L << ((low & 31) << 1);
+    } else if (high == low + this.width) {
+      this.walls[low >>> 5] |= 2L << ((low & 31) << 1);
+    } else {
+      throw new IllegalArgumentException("Cells are not adjacent");
+    }
+  }
+
+  // EFFECT: open the passages of the given row
+  public void acceptRow(int row, boolean[] right, boolean[] down) {
+    for (int i = 0; i < this.width; i++) {
+      int cell = row * this.width + i;
+      if (right[i]) {
+        this.carve(cell, cell + 1);
+      }
+      if (down[i]) {
+        this.carve(cell, cell + this.width);
+      }
+    }
+  }
+}
+
+// writes a maze to a text file as ascii art, one row at a time, marking the cells of a path
+// and the passages between them with stars if there is one
+class AsciiSink implements IRowSink {
+  Writer out;
+  // the cells of the path in the row being written and in the row below it
+  PathCursor here;
+  PathCursor below;
+
+  AsciiSink(Writer out, int[] sortedPath) {
+    this.out = out;
+    this.here = new PathCursor(sortedPath);
+    this.below = new PathCursor(sortedPath);
+  }
+
+  AsciiSink(Writer out) {
+    this(out, null);
+  }
+
+  // EFFECT: write the given row, and the top wall before the first row
+  public void acceptRow(int row, boolean[] right, boolean[] down) {
+    int first = row * right.length;
+    try {
+      if (row == 0) {
+        for (int i = 0; i < right.length; i++) {
+          this.out.write("+--");
+        }
+        this.out.write("+\n");
+      }
+      this.out.write('|');
+      for (int i = 0; i < right.length; i++) {
+        boolean onPath = this.here.contains(first + i);
+        this.out.write(onPath ? "**" : "  ");
+        if (right[i]) {
+          this.out.write(onPath && this.here.contains(first + i + 1) ? '*' : ' ');
+        } else {
+          this.out.write('|');
+        }
+      }
+      this.here.rewind(first);
+      this.out.write("\n+");
+      for (int i = 0; i < down.length; i++) {
+        if (down[i]) {
+          this.out.write(this.here.contains(first + i)
+              && this.below.contains(first + right.length + i) ? "**+" : "  +");
+        } else {
+          this.out.write("--+");
+        }
+      }
+      this.out.write('\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
+
+// answers whether cells are on a path, given the path's cells in increasing order and asked
+// about cells in increasing order, so checking a whole maze costs one pass over the path
+class PathCursor {
+  // the cells of the path sorted, or null for no path
+  int[] sorted;
+  // the first cell of the path that could still be asked about
+  int next;
+
+  PathCursor(int[] sorted) {
+    this.sorted = sorted;
+    this.next = 0;
+  }
+
+  // the cells of the path in increasing order
+  static int[] sort(int[] path) {
+    int[] sorted = path.clone();
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  // is the cell on the path, where no cell before the last one asked about may be asked
+  boolean contains(int cell) {
+    if (this.sorted == null) {
+      return false;
+    }
+    while (this.next < this.sorted.length && this.sorted[this.next] < cell) {
+      this.next++;
+    }
+    return this.next < this.sorted.length && this.sorted[this.next] == cell;
+  }
+
+  // EFFECT: go back so the given cell and the cells after it may be asked about again
+  void rewind(int cell) {
+    while (this.next > 0 && this.sorted[this.next - 1] >= cell) {
+      this.next--;
+    }
+  }
+}
+
+// the Node and Edge graph of a maze, used by the GUI
+class MazeNodes {
+  ArrayList<Node> nodes;
+  ArrayList<Edge> edges;
+
+  MazeNodes(IMaze maze, int size) {
+    this.nodes = new ArrayList<Node>(maze.cellCount());
+    this.edges = new ArrayList<Edge>(Math.max(maze.cellCount() - 1, 0));
+    for (int i = 0; i < maze.height(); i++) {
+      for (int j = 0; j < maze.width(); j++) {
+        this.nodes.add(new Node(i, j, size));
+      }
+    }
+
+    // wire each passage as it is found instead of searching the edge list for every node
+    for (int cell = 0; cell < maze.cellCount(); cell++) {
+      if (maze.openRight(cell)) {
+        this.accept(cell, cell + 1);
+      }
+      if (maze.openDown(cell)) {
+        this.accept(cell, cell + maze.width());
+      }
+    }
+  }
+
+  // EFFECT: add the edge between the two cells and connect their nodes
+  void accept(int a, int b) {
+    Edge e = new Edge(this.nodes.get(a), this.nodes.get(b), this.edges.size());
+    e.link();
+    this.edges.add(e);
+  }
+}
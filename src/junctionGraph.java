@@ -0,0 +1,385 @@
+import java.util.Arrays;
+
+// the junctions of a maze and the corridors between them
+// a junction is any cell without exactly two open sides, so a dead end, a fork or a crossing,
+// and every other cell lies on a corridor between two junctions that a search can step over
+// as one edge weighted by its length
+// the graph only reads the maze, so it is built once and shared by every search on the maze
+class JunctionGraph {
+  IMaze maze;
+  // the junction number of each cell, or -1 if the cell is on a corridor
+  int[] junctionOf;
+  // the cell of each junction
+  int[] cells;
+  // the corridors out of junction j are numbered offsets[j] up to offsets[j + 1]
+  int[] offsets;
+  // the junction at the far end of each corridor
+  int[] ends;
+  // the number of steps along each corridor
+  int[] lengths;
+  // the first cell along each corridor
+  int[] firstSteps;
+
+  JunctionGraph(IMaze maze) {
+    this.maze = maze;
+    this.junctionOf = new int[maze.cellCount()];
+    int count = 0;
+    int corridors = 0;
+    for (int cell = 0; cell < maze.cellCount(); cell++) {
+      int degree = maze.degree(cell);
+      if (degree == 2) {
+        this.junctionOf[cell] = -1;
+      } else {
+        this.junctionOf[cell] = count;
+        count++;
+        corridors += degree;
+      }
+    }
+
+    this.cells = new int[count];
+    this.offsets = new int[count + 1];
+    this.ends = new int[corridors];
+    this.lengths = new int[corridors];
+    this.firstSteps = new int[corridors];
+    int[] neighbors = new int[4];
+    int[] end = new int[2];
+    int corridor = 0;
+    for (int cell = 0; cell < maze.cellCount(); cell++) {
+      int junction = this.junctionOf[cell];
+      if (junction != -1) {
+        this.cells[junction] = cell;
+        this.offsets[junction] = corridor;
+        int n = maze.neighbors(cell, neighbors);
+        for (int i = 0; i < n; i++) {
+          this.walk(cell, neighbors[i], -1, end, null);
+          this.ends[corridor] = this.junctionOf[end[0]];
+          this.lengths[corridor] = end[1];
+          this.firstSteps[corridor] = neighbors[i];
+          corridor++;
+        }
+      }
+    }
+    this.offsets[count] = corridor;
+  }
+
+  // the number of junctions in the maze
+  int junctionCount() {
+    return this.cells.length;
+  }
+
+  // the cell after the given cell on its corridor, coming from prev
+  int along(int prev, int cell) {
+    int width = this.maze.width();
+    if (cell - width != prev && this.maze.openUp(cell)) {
+      return cell - width;
+    } else if (cell - 1 != prev && this.maze.openLeft(cell)) {
+      return cell - 1;
+    } else if (cell + 1 != prev && this.maze.openRight(cell)) {
+      return cell + 1;
+    } else {
+      return cell + width;
+    }
+  }
+
+  // EFFECT: follow the corridor from the given cell through first until it reaches a
+  //         junction, the stop cell, or the cell it started from, writing the cell it ended
+  //         at and the number of steps taken into out, and adding every cell after the
+  //         start to path if it is not null
+  void walk(int from, int first, int stop, int[] out, IntDeque path) {
+    int prev = from;
+    int cell = first;
+    int steps = 1;
+    while (cell != stop && cell != from && this.junctionOf[cell] == -1) {
+      if (path != null) {
+        path.addLast(cell);
+      }
+      int next = this.along(prev, cell);
+      prev = cell;
+      cell = next;
+      steps++;
+    }
+    if (path != null) {
+      path.addLast(cell);
+    }
+    out[0] = cell;
+    out[1] = steps;
+  }
+
+  // the junction the given corridor leaves from
+  int source(int corridor) {
+    int low = 0;
+    int high = this.cells.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (this.offsets[mid] <= corridor) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+}
+
+// a shortest path search between two cells that only expands junctions, stepping along the
+// corridors out of the start and into the target to reach the junction graph and walking
+// the corridors again only to trace the path it found
+// with the estimate on, junctions are ordered by distance plus Manhattan distance to the
+// target like A*, which never overestimates since no corridor is shorter than that
+class JunctionSearch implements ICellSolver {
+  JunctionGraph graph;
+  int from;
+  int to;
+  boolean useEstimate;
+  // the shortest known distance from the start to each junction
+  int[] distances;
+  // the corridor each junction was reached along, or -1 - i if it was reached along the
+  // ith way out of the start
+  int[] cameFrom;
+  // one bit per junction, set once the junction is expanded
+  long[] settled;
+  LongHeap worklist;
+  // the cell each way out of the start or into the target ends at, its length, and its
+  // first cell, or -1 if the endpoint is a junction itself
+  int[] startEnds;
+  int[] startLengths;
+  int[] startSteps;
+  int[] targetEnds;
+  int[] targetLengths;
+  int[] targetSteps;
+  int[] neighbors;
+  int[] end;
+  int expanded;
+  // set once the search is asked to stop, from any thread
+  volatile boolean cancelled;
+
+  JunctionSearch(JunctionGraph graph, int from, int to, boolean useEstimate) {
+    this.graph = graph;
+    this.from = from;
+    this.to = to;
+    this.useEstimate = useEstimate;
+    this.distances = new int[graph.junctionCount()];
+    Arrays.fill(this.distances, Integer.MAX_VALUE);
+    this.cameFrom = new int[graph.junctionCount()];
+    this.settled = new long[(graph.junctionCount() + 63) / 64];
+    this.worklist = new LongHeap();
+    this.startEnds = new int[4];
+    this.startLengths = new int[4];
+    this.startSteps = new int[4];
+    this.targetEnds = new int[4];
+    this.targetLengths = new int[4];
+    this.targetSteps = new int[4];
+    this.neighbors = new int[4];
+    this.end = new int[2];
+    this.expanded = 0;
+    this.cancelled = false;
+  }
+
+  // returns the number of ways out of the cell, which is one way of no steps if the cell
+  // is a junction, or else each direction along its corridor that ends at a junction or
+  // at the stop cell
+  // EFFECT: write the end, length and first step of each way into the arrays
+  int exits(int cell, int stop, int[] ends, int[] lengths, int[] steps) {
+    if (this.graph.junctionOf[cell] != -1) {
+      ends[0] = cell;
+      lengths[0] = 0;
+      steps[0] = -1;
+      return 1;
+    }
+    int count = this.graph.maze.neighbors(cell, this.neighbors);
+    int exits = 0;
+    for (int i = 0; i < count; i++) {
+      this.graph.walk(cell, this.neighbors[i], stop, this.end, null);
+      this.expanded += this.end[1];
+      if (this.end[0] != cell) {
+        ends[exits] = this.end[0];
+        lengths[exits] = this.end[1];
+        steps[exits] = this.neighbors[i];
+        exits++;
+      }
+    }
+    return exits;
+  }
+
+  // the estimated distance from the junction to the target
+  int estimate(int junction) {
+    if (this.useEstimate) {
+      return this.graph.maze.distance(this.graph.cells[junction], this.to);
+    } else {
+      return 0;
+    }
+  }
+
+  // EFFECT: record the junction as reached at the given distance if that is shorter than
+  //         any known way to it, and add it to the worklist
+  void reach(int junction, int distance, int via) {
+    if (distance < this.distances[junction]) {
+      this.distances[junction] = distance;
+      this.cameFrom[junction] = via;
+      this.worklist.add(((long) (distance + this.estimate(junction)) << 32) | junction);
+    }
+  }
+
+  // is the junction expanded
+  boolean isSettled(int junction) {
+    return (this.settled[junction >>> 6] & (1L << junction)) != 0;
+  }
+
+  public int[] solve() {
+    if (this.from == this.to) {
+      return new int[] {this.from};
+    }
+    // the length of the shortest path found so far, and the way into the target it ends
+    // with, or -1 if it runs straight along the corridor from the start
+    int best = Integer.MAX_VALUE;
+    int bestExit = -1;
+    int direct = -1;
+
+    int startCount = this.exits(this.from, this.to, this.startEnds, this.startLengths,
+        this.startSteps);
+    for (int i = 0; i < startCount; i++) {
+      if (this.startEnds[i] == this.to) {
+        if (this.startLengths[i] < best) {
+          best = this.startLengths[i];
+          direct = this.startSteps[i];
+        }
+      } else {
+        this.reach(this.graph.junctionOf[this.startEnds[i]], this.startLengths[i], -1 - i);
+      }
+    }
+    int targetCount = this.exits(this.to, -1, this.targetEnds, this.targetLengths,
+        this.targetSteps);
+
+    while (!this.worklist.isEmpty() && !this.cancelled) {
+      long top = this.worklist.remove();
+      int junction = (int) top;
+      if ((int) (top >>> 32) >= best) {
+        break;
+      } else if (this.isSettled(junction)) {
+        continue;
+      }
+      this.settled[junction >>> 6] |= 1L << junction;
+      this.expanded++;
+      int distance = this.distances[junction];
+      int cell = this.graph.cells[junction];
+      for (int i = 0; i < targetCount; i++) {
+        if (this.targetEnds[i] == cell && distance + this.targetLengths[i] < best) {
+          best = distance + this.targetLengths[i];
+          bestExit = i;
+        }
+      }
+      for (int c = this.graph.offsets[junction]; c < this.graph.offsets[junction + 1]; c++) {
+        int next = this.graph.ends[c];
+        if (!this.isSettled(next)) {
+          this.reach(next, distance + this.graph.lengths[c], c);
+        }
+      }
+    }
+
+    if (best == Integer.MAX_VALUE || this.cancelled) {
+      return null;
+    } else if (bestExit == -1) {
+      IntDeque path = new IntDeque();
+      path.addLast(this.from);
+      this.graph.walk(this.from, direct, this.to, this.end, path);
+      return path.toArray();
+    } else {
+      return this.trace(bestExit);
+    }
+  }
+
+  // the cells on the path from the start through the junctions to the target, ending with
+  // the given way into the target
+  int[] trace(int exit) {
+    IntDeque corridors = new IntDeque();
+    int junction = this.graph.junctionOf[this.targetEnds[exit]];
+    while (this.cameFrom[junction] >= 0) {
+      corridors.addFirst(this.cameFrom[junction]);
+      junction = this.graph.source(this.cameFrom[junction]);
+    }
+
+    IntDeque path = new IntDeque();
+    path.addLast(this.from);
+    int first = this.startSteps[-1 - this.cameFrom[junction]];
+    if (first != -1) {
+      this.graph.walk(this.from, first, -1, this.end, path);
+    }
+    for (int i = 0; i < corridors.size; i++) {
+      int c = corridors.get(i);
+      this.graph.walk(this.graph.cells[this.graph.source(c)], this.graph.firstSteps[c], -1,
+          this.end, path);
+    }
+    if (this.targetSteps[exit] != -1) {
+      // the corridor into the target is walked out from the target, so add it backwards
+      IntDeque back = new IntDeque();
+      this.graph.walk(this.to, this.targetSteps[exit], -1, this.end, back);
+      for (int i = back.size - 2; i >= 0; i--) {
+        path.addLast(back.get(i));
+      }
+      path.addLast(this.to);
+    }
+    return path.toArray();
+  }
+
+  public int expanded() {
+    return this.expanded;
+  }
+
+  public void cancel() {
+    this.cancelled = true;
+  }
+}
+
+// a binary min heap of longs, used to order junctions by a distance packed above them
+class LongHeap {
+  long[] items;
+  int size;
+
+  LongHeap() {
+    this.items = new long[16];
+    this.size = 0;
+  }
+
+  // is the heap empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // EFFECT: add the item to the heap
+  void add(long item) {
+    if (this.size == this.items.length) {
+      this.items = Arrays.copyOf(this.items, this.size * 2);
+    }
+    int i = this.size;
+    this.size++;
+    while (i > 0 && this.items[(i - 1) / 2] > item) {
+      this.items[i] = this.items[(i - 1) / 2];
+      i = (i - 1) / 2;
+    }
+    this.items[i] = item;
+  }
+
+  // remove and return the smallest item in the heap
+  long remove() {
+    if (this.size == 0) {
+      throw new IllegalStateException("The heap is empty");
+    }
+    long smallest = this.items[0];
+    this.size--;
+    long last = this.items[this.size];
+    int i = 0;
+    while (2 * i + 1 < this.size) {
+      int child = 2 * i + 1;
+      if (child + 1 < this.size && this.items[child + 1] < this.items[child]) {
+        child++;
+      }
+      if (this.items[child] >= last) {
+        break;
+      }
+      this.items[i] = this.items[child];
+      i = child;
+    }
+    this.items[i] = last;
+    return smallest;
+  }
+}
@@ -0,0 +1,276 @@
+import java.awt.Color;
+import java.util.HashMap;
+import javalib.worldimages.ComputedPixelImage;
+
+// draws the maze into one image that is kept from frame to frame, so the walls of every
+// cell are drawn once for each maze and afterwards only the cells marked as changed are
+// painted again, instead of building an image for every cell every frame
+// the maze is drawn into an array of pixels first and copied into the image in runs of one
+// color, since the image can only be set a rectangle of one color at a time
+// when cells would be smaller than two pixels, each pixel instead stands for a square block
+// of cells, showing the most important state in the block, or else a grey that darkens
+// with the number of walls in it
+// the walls come straight from the maze and the state of each cell from an array of
+// states by cell, as Node numbers them, so no object is made for any cell
+class MazeCanvas {
+  static final int BLACK = 0xff000000;
+  // the argb color of each state
+  static final int[] STATE_COLORS = {Node.colorOf(0).getRGB(), Node.colorOf(1).getRGB(),
+      Node.colorOf(2).getRGB(), Node.colorOf(3).getRGB(), Node.colorOf(4).getRGB()};
+
+  IMaze maze;
+  // the state of every cell, which whoever changes it must mark
+  byte[] states;
+  int width;
+  int height;
+  // the pixels along each side of a cell, or 0 if each pixel is a block of cells
+  int cellSize;
+  // the cells along each side of the block a pixel stands for, or 1 if cells are drawn
+  int cellsPerPixel;
+  // the argb color of every pixel of the image, row by row
+  int[] pixels;
+  int imageWidth;
+  int imageHeight;
+  ComputedPixelImage image;
+  // the colors already handed to the image, by their argb value
+  HashMap<Integer, Color> colors;
+  // one bit per cell or block, set while it waits in dirtyUnits to be painted
+  long[] dirty;
+  IntDeque dirtyUnits;
+  // does everything need painting
+  boolean allDirty;
+
+  // cells of the given size if they are at least two pixels, or else blocks of cells small
+  // enough that the image fits in the given number of pixels
+  MazeCanvas(IMaze maze, byte[] states, int cellSize, int maxWidth, int maxHeight) {
+    this.maze = maze;
+    this.states = states;
+    int width = maze.width();
+    int height = maze.height();
+    this.width = width;
+    this.height = height;
+    if (cellSize >= 2) {
+      this.cellSize = cellSize;
+      this.cellsPerPixel = 1;
+      this.imageWidth = width * cellSize;
+      this.imageHeight = height * cellSize;
+    } else {
+      this.cellSize = 0;
+      this.cellsPerPixel = MazeCanvas.cellsPerPixel(width, height, maxWidth, maxHeight);
+      this.imageWidth = this.blocksAcross();
+      this.imageHeight = (height + this.cellsPerPixel - 1) / this.cellsPerPixel;
+    }
+    // an even size keeps the center of the image, where it is placed, on a whole pixel
+    this.imageWidth = (this.imageWidth + 1) & ~1;
+    this.imageHeight = (this.imageHeight + 1) & ~1;
+    this.pixels = new int[this.imageWidth * this.imageHeight];
+    this.image = new ComputedPixelImage(this.imageWidth, this.imageHeight);
+    this.colors = new HashMap<Integer, Color>();
+    this.dirty = new long[(this.unitCount() + 63) / 64];
+    this.dirtyUnits = new IntDeque();
+    this.allDirty = true;
+  }
+
+  MazeCanvas(IMaze maze, byte[] states, int cellSize) {
+    this(maze, states, cellSize, Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  // the cells along each side of the block a pixel stands for, so the blocks of a maze of
+  // the given size fit in the given number of pixels
+  static int cellsPerPixel(int width, int height, int maxWidth, int maxHeight) {
+    return Math.max(1, Math.max((width + maxWidth - 1) / maxWidth,
+        (height + maxHeight - 1) / maxHeight));
+  }
+
+  // the bytes a canvas made with the same arguments as the constructor takes: each pixel
+  // twice, in the array and in the image, and a bit for each cell or block
+  static long bytes(int width, int height, int cellSize, int maxWidth, int maxHeight) {
+    long across;
+    long down;
+    if (cellSize >= 2) {
+      across = (long) width * cellSize;
+      down = (long) height * cellSize;
+    } else {
+      int cellsPerPixel = MazeCanvas.cellsPerPixel(width, height, maxWidth, maxHeight);
+      across = (width + cellsPerPixel - 1) / cellsPerPixel;
+      down = (height + cellsPerPixel - 1) / cellsPerPixel;
+    }
+    long units = cellSize >= 2 ? (long) width * height : across * down;
+    return 8 * ((across + 1) & ~1) * ((down + 1) & ~1) + units / 8 + 64;
+  }
+
+  // the number of blocks of cells along each row of blocks
+  int blocksAcross() {
+    return (this.width + this.cellsPerPixel - 1) / this.cellsPerPixel;
+  }
+
+  // the number of cells or blocks that are painted as one
+  int unitCount() {
+    if (this.cellSize > 0) {
+      return this.width * this.height;
+    } else {
+      return this.blocksAcross() * ((this.height + this.cellsPerPixel - 1) / this.cellsPerPixel);
+    }
+  }
+
+  // EFFECT: remember to paint the cell before the next frame
+  void mark(int cell) {
+    int unit = (cell / this.width / this.cellsPerPixel) * this.blocksAcross()
+        + cell % this.width / this.cellsPerPixel;
+    if (!this.allDirty && (this.dirty[unit >>> 6] & (1L << unit)) == 0) {
+      this.dirty[unit >>> 6] |= 1L << unit;
+      this.dirtyUnits.addLast(unit);
+    }
+  }
+
+  // EFFECT: remember to paint every cell before the next frame
+  void markAll() {
+    this.allDirty = true;
+  }
+
+  // the image of the maze, with every marked cell painted
+  ComputedPixelImage render() {
+    if (this.allDirty) {
+      for (int unit = 0; unit < this.unitCount(); unit++) {
+        this.paint(unit);
+      }
+      this.copy(0, 0, this.imageWidth, this.imageHeight);
+      this.allDirty = false;
+      this.dirtyUnits = new IntDeque();
+      this.dirty = new long[this.dirty.length];
+    }
+    while (!this.dirtyUnits.isEmpty()) {
+      int unit = this.dirtyUnits.removeFirst();
+      this.dirty[unit >>> 6] &= ~(1L << unit);
+      this.paint(unit);
+      if (this.cellSize > 0) {
+        this.copy((unit % this.width) * this.cellSize, (unit / this.width) * this.cellSize,
+            this.cellSize, this.cellSize);
+      } else {
+        this.copy(unit % this.blocksAcross(), unit / this.blocksAcross(), 1, 1);
+      }
+    }
+    return this.image;
+  }
+
+  // EFFECT: draw the cell or block into the pixels
+  void paint(int unit) {
+    if (this.cellSize > 0) {
+      this.paintCell(unit);
+    } else {
+      this.paintBlock(unit);
+    }
+  }
+
+  // EFFECT: fill the cell with the color of its state and draw its closed sides as walls,
+  //         two pixels thick like Node.drawNode if the cell is big enough
+  void paintCell(int cell) {
+    int s = this.cellSize;
+    int col = cell % this.width;
+    int row = cell / this.width;
+    int x = col * s;
+    int y = row * s;
+    int wall = s >= 4 ? 2 : 1;
+    this.fill(x, y, s, s, STATE_COLORS[this.states[cell]]);
+    if (row == 0 || !this.maze.openDown(cell - this.width)) {
+      this.fill(x, y, s, wall, BLACK);
+    }
+    if (!this.maze.openDown(cell)) {
+      this.fill(x, y + s - wall, s, wall, BLACK);
+    }
+    if (col == 0 || !this.maze.openRight(cell - 1)) {
+      this.fill(x, y, wall, s, BLACK);
+    }
+    if (!this.maze.openRight(cell)) {
+      this.fill(x + s - wall, y, wall, s, BLACK);
+    }
+  }
+
+  // EFFECT: set the block's pixel to the color of the start or target if either is in it,
+  //         or else of the path, or else of an explored cell, or else a grey as dark as
+  //         the share of the right and bottom sides of its cells that are walls
+  void paintBlock(int block) {
+    int k = this.cellsPerPixel;
+    int top = (block / this.blocksAcross()) * k;
+    int left = (block % this.blocksAcross()) * k;
+    int bottom = Math.min(top + k, this.height);
+    int right = Math.min(left + k, this.width);
+    int rank = 0;
+    int best = 0;
+    int walls = 0;
+    for (int row = top; row < bottom; row++) {
+      for (int col = left; col < right; col++) {
+        int cell = row * this.width + col;
+        int r = MazeCanvas.rank(this.states[cell]);
+        if (r > rank) {
+          rank = r;
+          best = this.states[cell];
+        }
+        if (!this.maze.openRight(cell)) {
+          walls++;
+        }
+        if (!this.maze.openDown(cell)) {
+          walls++;
+        }
+      }
+    }
+    int argb;
+    if (rank > 0) {
+      argb = STATE_COLORS[best];
+    } else {
+      int grey = 192 - 96 * walls / (2 * (bottom - top) * (right - left));
+      argb = BLACK | (grey << 16) | (grey << 8) | grey;
+    }
+    this.pixels[block / this.blocksAcross() * this.imageWidth + block % this.blocksAcross()] =
+        argb;
+  }
+
+  // how much a state stands out when a block of cells is drawn as one pixel
+  static int rank(int state) {
+    switch (state) {
+      case 3:
+      case 4:
+        return 3;
+      case 1:
+        return 2;
+      case 2:
+        return 1;
+      default:
+        return 0;
+    }
+  }
+
+  // EFFECT: set the pixels of the rectangle to the color
+  void fill(int x, int y, int w, int h, int argb) {
+    for (int row = y; row < y + h; row++) {
+      int start = row * this.imageWidth + x;
+      for (int i = start; i < start + w; i++) {
+        this.pixels[i] = argb;
+      }
+    }
+  }
+
+  // EFFECT: copy the rectangle of pixels into the image, one run of a color at a time
+  void copy(int x, int y, int w, int h) {
+    for (int row = y; row < y + h; row++) {
+      int offset = row * this.imageWidth;
+      int run = x;
+      for (int col = x + 1; col <= x + w; col++) {
+        if (col == x + w || this.pixels[offset + col] != this.pixels[offset + run]) {
+          this.image.setPixels(run, row, col - run, 1, this.color(this.pixels[offset + run]));
+          run = col;
+        }
+      }
+    }
+  }
+
+  // the color with the argb value
+  Color color(int argb) {
+    Color c = this.colors.get(argb);
+    if (c == null) {
+      c = new Color(argb, true);
+      this.colors.put(argb, c);
+    }
+    return c;
+  }
+}
@@ -0,0 +1,89 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// a flight recorder event for one phase of generating a maze, lasting from when it starts
+// to when it is committed
+// recording them costs nothing unless a flight recording with the event enabled is running
+@Name("maze.GenerationPhase")
+@Label("Maze Generation Phase")
+@Category("Maze")
+@Description("One phase of generating a maze")
+class GenerationPhaseEvent extends Event {
+  @Label("Generator")
+  String generator;
+
+  @Label("Phase")
+  String phase;
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+
+  // a phase of the given generator on a maze of the given size, started now
+  static GenerationPhaseEvent start(String generator, String phase, int width, int height) {
+    GenerationPhaseEvent event = new GenerationPhaseEvent();
+    event.generator = generator;
+    event.phase = phase;
+    event.width = width;
+    event.height = height;
+    event.begin();
+    return event;
+  }
+}
+
+// a flight recorder event for one run of a solver, lasting from when it starts to when it
+// is committed
+@Name("maze.Solve")
+@Label("Maze Solve")
+@Category("Maze")
+@Description("One run of a solver from a start cell to a target cell")
+class SolveEvent extends Event {
+  static final String SOLVED = "solved";
+  static final String UNREACHABLE = "unreachable";
+
+  @Label("Algorithm")
+  String algorithm;
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+
+  @Label("Expanded")
+  @Description("The number of cells the solver expanded")
+  int expanded;
+
+  @Label("Path Length")
+  @Description("The number of cells on the path found, or -1 if there is none")
+  int pathLength;
+
+  @Label("Outcome")
+  String outcome;
+
+  // a run of the given solver on a maze of the given size, started now
+  static SolveEvent start(String algorithm, int width, int height) {
+    SolveEvent event = new SolveEvent();
+    event.algorithm = algorithm;
+    event.width = width;
+    event.height = height;
+    event.begin();
+    return event;
+  }
+
+  // EFFECT: end the run with the path it found, or null if it found none, and commit it
+  void finish(int[] path, int expanded) {
+    this.end();
+    if (this.shouldCommit()) {
+      this.expanded = expanded;
+      this.pathLength = path == null ? -1 : path.length;
+      this.outcome = path == null ? UNREACHABLE : SOLVED;
+      this.commit();
+    }
+  }
+}
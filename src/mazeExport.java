@@ -0,0 +1,198 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+// writes a maze as a netpbm image one row at a time, where each cell and each wall between
+// two cells is one pixel, so a maze of w by h cells is 2w + 1 by 2h + 1 pixels
+// a bitmap (P4) is black walls on white, and a greymap (P5) also draws a path in grey
+// only one row of pixels and a fixed size buffer are held at a time
+class PixelSink implements IRowSink {
+  static final byte OPEN = 0;
+  static final byte WALL = 1;
+  static final byte PATH = 2;
+
+  WritableByteChannel out;
+  int width;
+  int height;
+  boolean grey;
+  PathCursor here;
+  PathCursor below;
+  // the kind of each pixel of the pixel row being written
+  byte[] pixels;
+  ByteBuffer buffer;
+
+  PixelSink(WritableByteChannel out, int width, int height, int[] sortedPath, boolean grey) {
+    this.out = out;
+    this.width = width;
+    this.height = height;
+    this.grey = grey;
+    this.here = new PathCursor(sortedPath);
+    this.below = new PathCursor(sortedPath);
+    this.pixels = new byte[2 * width + 1];
+    this.buffer = ByteBuffer.allocateDirect(Math.max(1 << 16, this.pixels.length));
+  }
+
+  // the number of bytes one row of pixels takes in the file
+  int rowBytes() {
+    return this.grey ? this.pixels.length : (this.pixels.length + 7) / 8;
+  }
+
+  // EFFECT: write the pixels of the given row and the walls below it, with the header and
+  //         the top wall before the first row, and flush after the last row
+  public void acceptRow(int row, boolean[] right, boolean[] down) {
+    try {
+      if (row == 0) {
+        String header = (this.grey ? "P5\n" : "P4\n") + this.pixels.length + " "
+            + (2 * this.height + 1) + "\n" + (this.grey ? "255\n" : "");
+        this.buffer.put(header.getBytes(StandardCharsets.US_ASCII));
+        for (int i = 0; i < this.pixels.length; i++) {
+          this.pixels[i] = WALL;
+        }
+        this.writePixels();
+      }
+
+      int first = row * this.width;
+      this.pixels[0] = WALL;
+      for (int i = 0; i < this.width; i++) {
+        boolean onPath = this.here.contains(first + i);
+        this.pixels[2 * i + 1] = onPath ? PATH : OPEN;
+        if (right[i]) {
+          this.pixels[2 * i + 2] = onPath && this.here.contains(first + i + 1) ? PATH : OPEN;
+        } else {
+          this.pixels[2 * i + 2] = WALL;
+        }
+      }
+      this.writePixels();
+
+      this.here.rewind(first);
+      for (int i = 0; i < this.width; i++) {
+        if (down[i]) {
+          this.pixels[2 * i + 1] = this.here.contains(first + i)
+              && this.below.contains(first + this.width + i) ? PATH : OPEN;
+        } else {
+          this.pixels[2 * i + 1] = WALL;
+        }
+        this.pixels[2 * i + 2] = WALL;
+      }
+      this.writePixels();
+
+      if (row == this.height - 1) {
+        this.flush();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // EFFECT: add the row of pixels to the buffer, first writing the buffer out if it is full
+  void writePixels() throws IOException {
+    if (this.buffer.remaining() < this.rowBytes()) {
+      this.flush();
+    }
+    if (this.grey) {
+      for (byte pixel : this.pixels) {
+        this.buffer.put(pixel == WALL ? (byte) 0 : pixel == PATH ? (byte) 128 : (byte) 255);
+      }
+    } else {
+      int bits = 0;
+      for (int i = 0; i < this.pixels.length; i++) {
+        bits = (bits << 1) | (this.pixels[i] == WALL ? 1 : 0);
+        if ((i & 7) == 7) {
+          this.buffer.put((byte) bits);
+          bits = 0;
+        }
+      }
+      if ((this.pixels.length & 7) != 0) {
+        this.buffer.put((byte) (bits << (8 - (this.pixels.length & 7))));
+      }
+    }
+  }
+
+  // EFFECT: write everything in the buffer to the channel
+  void flush() throws IOException {
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      this.out.write(this.buffer);
+    }
+    this.buffer.clear();
+  }
+}
+
+// the maze the GUI's nodes were connected into, so anything that reads an IMaze can read it
+class NodeMaze implements IMaze {
+  ArrayList<Node> nodes;
+  int width;
+  int height;
+
+  NodeMaze(ArrayList<Node> nodes, int width, int height) {
+    this.nodes = nodes;
+    this.width = width;
+    this.height = height;
+  }
+
+  public int width() {
+    return this.width;
+  }
+
+  public int height() {
+    return this.height;
+  }
+
+  public boolean openRight(int cell) {
+    return this.nodes.get(cell).rightConnected;
+  }
+
+  public boolean openDown(int cell) {
+    return this.nodes.get(cell).bottomConnected;
+  }
+
+  // the cells of the given nodes, in the same order
+  int[] cells(ArrayList<Node> path) {
+    int[] cells = new int[path.size()];
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = path.get(i).row * this.width + path.get(i).col;
+    }
+    return cells;
+  }
+}
+
+// writes whole mazes to files, choosing the format from the file's extension: a .pbm
+// bitmap, a .pgm greymap, or ascii art for anything else
+class MazeExport {
+  // EFFECT: write the maze to the file, marking the path on it if it is not null
+  static void write(IMaze maze, int[] path, Path file) throws IOException {
+    MazeExport.write(maze.width(), maze.height(), maze::emitRows, path, file);
+  }
+
+  // EFFECT: write the maze of the given size whose rows the source sends to a sink to the
+  //         file, marking the path on it if it is not null, except in a bitmap which has
+  //         no color to mark it with
+  static void write(int width, int height, Consumer<IRowSink> rows, int[] path, Path file)
+      throws IOException {
+    int[] sorted = path == null ? null : PathCursor.sort(path);
+    String name = file.getFileName().toString();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      if (name.endsWith(".pbm") || name.endsWith(".pgm")) {
+        rows.accept(new PixelSink(channel, width, height, sorted, name.endsWith(".pgm")));
+      } else {
+        Writer out = new BufferedWriter(
+            Channels.newWriter(channel, StandardCharsets.US_ASCII.newEncoder(), 1 << 16));
+        rows.accept(new AsciiSink(out, sorted));
+        out.flush();
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
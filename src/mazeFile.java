@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// reads and writes mazes as binary files laid out as
+//   a 64 byte header: the magic number "MAZE", the format version, the width, the height,
+//   the seed, the flags, four reserved bytes, and the generator's name as 32 bytes of
+//   ascii padded with zeros
+//   the walls of every 32 cells packed into a long exactly as CompactMaze keeps them
+//   if the solution flag is set, the start and target cells, the number of steps between
+//   them, and the moves of the path packed by PathCodec
+// with every number big endian
+class MazeFile {
+  static final int MAGIC = 0x4d415a45;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 64;
+  static final int NAME_BYTES = 32;
+  static final int HAS_SOLUTION = 1;
+  // a file is mapped in chunks of 2^30 bytes, a multiple of eight so no long spans two
+  static final int CHUNK_SHIFT = 30;
+
+  // EFFECT: write the maze to the file, with the path from its first to last cell if it
+  //         is not null
+  // the maze is written to a file beside it that then replaces it, since the maze may be
+  // mapped from the very file it is saved over
+  static void write(Path file, IMaze maze, long seed, String generator, int[] solution)
+      throws IOException {
+    byte[] name = generator.getBytes(StandardCharsets.US_ASCII);
+    if (name.length > NAME_BYTES) {
+      throw new IllegalArgumentException("Generator name is too long: " + generator);
+    }
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      MazeFile.write(temp, name, maze, seed, solution);
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  // EFFECT: write the maze to a new file, with the generator's name in ascii
+  static void write(Path file, byte[] name, IMaze maze, long seed, int[] solution)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(maze.width()).putInt(maze.height())
+          .putLong(seed).putInt(solution == null ? 0 : HAS_SOLUTION).putInt(0).put(name)
+          .put(new byte[NAME_BYTES - name.length]);
+
+      int words = (maze.cellCount() + 31) / 32;
+      for (int word = 0; word < words; word++) {
+        if (buffer.remaining() < 8) {
+          MazeFile.drain(channel, buffer);
+        }
+        buffer.putLong(MazeFile.wallWord(maze, word));
+      }
+
+      if (solution != null) {
+        if (buffer.remaining() < 12) {
+          MazeFile.drain(channel, buffer);
+        }
+        buffer.putInt(solution[0]).putInt(solution[solution.length - 1])
+            .putInt(solution.length - 1);
+        MazeFile.drain(channel, buffer);
+        ByteBuffer moves = ByteBuffer.wrap(PathCodec.encode(solution, maze.width()));
+        while (moves.hasRemaining()) {
+          channel.write(moves);
+        }
+      }
+      MazeFile.drain(channel, buffer);
+    }
+  }
+
+  // EFFECT: write everything put in the buffer to the channel and empty the buffer
+  static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  // the walls of the given 32 cells of the maze packed into a long
+  static long wallWord(IMaze maze, int word) {
+    if (maze instanceof CompactMaze) {
+      return ((CompactMaze) maze).walls[word];
+    }
+    long bits = 0;
+    int end = (int) Math.min(maze.cellCount(), (word + 1L) * 32);
+    for (int cell = word * 32; cell < end; cell++) {
+      if (maze.openRight(cell)) {
+        bits |= 1L << ((cell & 31) << 1);
+      }
+      if (maze.openDown(cell)) {
+        bits |= 2L << ((cell & 31) << 1);
+      }
+    }
+    return bits;
+  }
+}
+
+// a maze read straight out of a memory mapped maze file, so opening it only reads the
+// header, and the operating system pages the walls in as solvers reach them
+class MappedMaze implements IMaze {
+  int width;
+  int height;
+  long seed;
+  String generator;
+  int flags;
+  // the whole file, mapped in chunks of 2^CHUNK_SHIFT bytes
+  MappedByteBuffer[] chunks;
+  // where the solution starts in the file
+  long solutionOffset;
+
+  MappedMaze(Path file) throws IOException {
+    long size;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      size = channel.size();
+      if (size < MazeFile.HEADER_BYTES) {
+        throw new IOException("Not a maze file: " + file);
+      }
+      long chunkBytes = 1L << MazeFile.CHUNK_SHIFT;
+      this.chunks = new MappedByteBuffer[(int) ((size + chunkBytes - 1) / chunkBytes)];
+      for (int i = 0; i < this.chunks.length; i++) {
+        long start = i * chunkBytes;
+        this.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+            Math.min(chunkBytes, size - start));
+      }
+    }
+
+    if (this.readInt(0) != MazeFile.MAGIC) {
+      throw new IOException("Not a maze file: " + file);
+    }
+    int version = this.readInt(4);
+    if (version != MazeFile.VERSION) {
+      throw new IOException("Unsupported maze file version: " + version);
+    }
+    this.width = this.readInt(8);
+    this.height = this.readInt(12);
+    if (this.width <= 0 || this.height <= 0
+        || (long) this.width * this.height > Integer.MAX_VALUE) {
+      throw new IOException("Bad maze size in " + file + ": " + this.width + "x"
+          + this.height);
+    }
+    this.seed = this.readLong(16);
+    this.flags = this.readInt(24);
+    byte[] name = new byte[MazeFile.NAME_BYTES];
+    int length = 0;
+    while (length < name.length && this.readByte(32 + length) != 0) {
+      name[length] = this.readByte(32 + length);
+      length++;
+    }
+    this.generator = new String(name, 0, length, StandardCharsets.US_ASCII);
+    // the game makes its next mazes with the generator, so it must be one it knows
+    try {
+      Runner.makeGenerator(this.generator);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unknown generator in " + file + ": " + this.generator);
+    }
+
+    this.solutionOffset = MazeFile.HEADER_BYTES + 8L * ((this.cellCount() + 31) / 32);
+    long needed = this.solutionOffset + (this.hasSolution() ? 12 : 0);
+    if (this.hasSolution() && size >= needed) {
+      int start = this.readInt(this.solutionOffset);
+      int target = this.readInt(this.solutionOffset + 4);
+      int steps = this.readInt(this.solutionOffset + 8);
+      if (start < 0 || start >= this.cellCount() || target < 0
+          || target >= this.cellCount() || steps < 0 || steps >= this.cellCount()) {
+        throw new IOException("Bad solution in " + file);
+      }
+      needed += (steps + 3L) / 4;
+    }
+    if (size < needed) {
+      throw new IOException("The maze file is cut short: " + file);
+    }
+    if (size > needed) {
+      throw new IOException("The maze file is longer than its header says: " + file);
+    }
+  }
+
+  public int width() {
+    return this.width;
+  }
+
+  public int height() {
+    return this.height;
+  }
+
+  // the bits of the walls on the edge of the maze are ignored, so a damaged file can never
+  // lead out of it
+  public boolean openRight(int cell) {
+    return cell % this.width != this.width - 1
+        && ((this.readLong(MazeFile.HEADER_BYTES + 8L * (cell >>> 5))
+        >>> ((cell & 31) << 1)) & 1L) != 0;
+  }
+
+  public boolean openDown(int cell) {
+    return cell < this.cellCount() - this.width
+        && ((this.readLong(MazeFile.HEADER_BYTES + 8L * (cell >>> 5))
+        >>> ((cell & 31) << 1)) & 2L) != 0;
+  }
+
+  // does the file hold a solution
+  boolean hasSolution() {
+    return (this.flags & MazeFile.HAS_SOLUTION) != 0;
+  }
+
+  // the cells on the solution saved with the maze, or null if there is none or it does
+  // not follow the walls from its start to its target
+  int[] solution() {
+    if (!this.hasSolution()) {
+      return null;
+    }
+    int start = this.readInt(this.solutionOffset);
+    int target = this.readInt(this.solutionOffset + 4);
+    int steps = this.readInt(this.solutionOffset + 8);
+    byte[] moves = new byte[(steps + 3) / 4];
+    for (int i = 0; i < moves.length; i++) {
+      moves[i] = this.readByte(this.solutionOffset + 12 + i);
+    }
+    int[] path = PathCodec.decode(start, steps, moves, this.width);
+    return SolutionCache.follows(this, path, start, target) ? path : null;
+  }
+
+  // the long at the given offset in the file, which must be a multiple of eight
+  long readLong(long offset) {
+    return this.chunks[(int) (offset >>> MazeFile.CHUNK_SHIFT)]
+        .getLong((int) (offset & ((1L << MazeFile.CHUNK_SHIFT) - 1)));
+  }
+
+  // the int at the given offset in the file, which must be a multiple of four
+  int readInt(long offset) {
+    return this.chunks[(int) (offset >>> MazeFile.CHUNK_SHIFT)]
+        .getInt((int) (offset & ((1L << MazeFile.CHUNK_SHIFT) - 1)));
+  }
+
+  // the byte at the given offset in the file
+  byte readByte(long offset) {
+    return this.chunks[(int) (offset >>> MazeFile.CHUNK_SHIFT)]
+        .get((int) (offset & ((1L << MazeFile.CHUNK_SHIFT) - 1)));
+  }
+}
@@ -0,0 +1,409 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+// a way of generating a random perfect maze
+interface IMazeGenerator {
+  // generate a maze of the given size, using the given source of randomness
+  CompactMaze generate(int width, int height, Random rand);
+
+  // the name this generator goes by on the command line and in saved mazes
+  String name();
+}
+
+// generates mazes with kruskal's algorithm over randomly ordered edges
+class KruskalGenerator implements IMazeGenerator {
+  public String name() {
+    return "kruskal";
+  }
+
+  public CompactMaze generate(int width, int height, Random rand) {
+    CompactMaze.checkSize(width, height);
+    long start = Metrics.ENABLED ? System.nanoTime() : 0;
+    GenerationPhaseEvent phase = GenerationPhaseEvent.start(this.name(), "shuffle", width,
+        height);
+    GridKruskal kruskal = new GridKruskal(width, height);
+    int[] order = kruskal.shuffledEdges(rand);
+    phase.commit();
+    long shuffled = Metrics.ENABLED ? System.nanoTime() : 0;
+    phase = GenerationPhaseEvent.start(this.name(), "union", width, height);
+    int[] treeEdges = kruskal.run(order);
+    phase.commit();
+    long joined = Metrics.ENABLED ? System.nanoTime() : 0;
+    phase = GenerationPhaseEvent.start(this.name(), "carve", width, height);
+    CompactMaze maze = new CompactMaze(width, height);
+    for (int e : treeEdges) {
+      maze.carve(kruskal.cellOne(e), kruskal.cellTwo(e));
+    }
+    phase.commit();
+    if (Metrics.ENABLED) {
+      Metrics.REGISTRY.recordPhase(this.name(), "shuffle", shuffled - start);
+      Metrics.REGISTRY.recordPhase(this.name(), "union", joined - shuffled);
+      Metrics.REGISTRY.recordPhase(this.name(), "carve", System.nanoTime() - joined);
+    }
+    return maze;
+  }
+}
+
+// receives a maze one row at a time, from the top row down
+interface IRowSink {
+  // EFFECT: accept the given row, where right[i] is whether the i-th cell of the row opens
+  //         to its right and down[i] whether it opens downward
+  //         the arrays are reused for the next row, so they must not be kept
+  void acceptRow(int row, boolean[] right, boolean[] down);
+}
+
+// generates mazes one row at a time with eller's algorithm, only ever holding the set
+// each cell of the current row belongs to
+class EllerGenerator implements IMazeGenerator {
+  public String name() {
+    return "eller";
+  }
+
+  public CompactMaze generate(int width, int height, Random rand) {
+    CompactMaze.checkSize(width, height);
+    CompactMaze maze = new CompactMaze(width, height);
+    this.stream(width, height, rand, maze);
+    return maze;
+  }
+
+  // EFFECT: send each row of a new maze of the given size to the sink
+  // a streamed maze is never kept whole, so it may have more cells than an int counts
+  void stream(int width, int height, Random rand, IRowSink sink) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Bad maze size: " + width + "x" + height);
+    }
+    // the set of each cell in the current row, or -1 if it is not in one yet
+    int[] sets = new int[width];
+    // joins sets in the current row, indexed by set
+    UnionFind joined = new UnionFind(width);
+    boolean[] used = new boolean[width];
+    int[] remaining = new int[width];
+    boolean[] goesDown = new boolean[width];
+    boolean[] right = new boolean[width];
+    boolean[] down = new boolean[width];
+    for (int i = 0; i < width; i++) {
+      sets[i] = -1;
+    }
+
+    for (int row = 0; row < height; row++) {
+      boolean lastRow = row == height - 1;
+
+      // give every cell that was not reached from above a set of its own
+      for (int i = 0; i < width; i++) {
+        used[i] = false;
+      }
+      for (int i = 0; i < width; i++) {
+        if (sets[i] != -1) {
+          used[sets[i]] = true;
+        }
+      }
+      int free = 0;
+      for (int i = 0; i < width; i++) {
+        if (sets[i] == -1) {
+          while (used[free]) {
+            free++;
+          }
+          sets[i] = free;
+          used[free] = true;
+        }
+      }
+
+      // randomly join adjacent cells in different sets, or all of them on the last row
+      for (int i = 0; i < width; i++) {
+        joined.parent[i] = i;
+        joined.rank[i] = 0;
+      }
+      for (int i = 0; i < width - 1; i++) {
+        right[i] = (lastRow || rand.nextBoolean()) && joined.union(sets[i], sets[i + 1]);
+      }
+      right[width - 1] = false;
+      for (int i = 0; i < width; i++) {
+        sets[i] = joined.find(sets[i]);
+      }
+
+      // randomly open cells downward, at least one for every set
+      for (int i = 0; i < width; i++) {
+        remaining[i] = 0;
+        goesDown[i] = false;
+      }
+      for (int i = 0; i < width; i++) {
+        remaining[sets[i]]++;
+      }
+      for (int i = 0; i < width; i++) {
+        int set = sets[i];
+        remaining[set]--;
+        down[i] = !lastRow
+            && (rand.nextBoolean() || (remaining[set] == 0 && !goesDown[set]));
+        goesDown[set] = goesDown[set] || down[i];
+      }
+
+      sink.acceptRow(row, right, down);
+
+      for (int i = 0; i < width; i++) {
+        if (!down[i]) {
+          sets[i] = -1;
+        }
+      }
+    }
+  }
+}
+
+// generates a maze by building a spanning tree in each square tile of the grid in
+// parallel, then joining the tiles through randomly chosen edges on their boundaries
+// the maze only depends on the seed and tile size, not on how many threads run
+class TiledGenerator implements IMazeGenerator {
+  int tileSize;
+  ForkJoinPool pool;
+
+  TiledGenerator(int tileSize, ForkJoinPool pool) {
+    if (tileSize < 1) {
+      throw new IllegalArgumentException("Tile size must be positive");
+    }
+    this.tileSize = tileSize;
+    this.pool = pool;
+  }
+
+  TiledGenerator(int tileSize) {
+    this(tileSize, ForkJoinPool.commonPool());
+  }
+
+  public String name() {
+    return "tiled";
+  }
+
+  public CompactMaze generate(int width, int height, Random rand) {
+    CompactMaze.checkSize(width, height);
+    long seed = rand.nextLong();
+    int across = (width + this.tileSize - 1) / this.tileSize;
+    int down = (height + this.tileSize - 1) / this.tileSize;
+    long[][] tileEdges = new long[across * down][];
+    GenerationPhaseEvent phase = GenerationPhaseEvent.start(this.name(), "tiles", width,
+        height);
+    this.pool.invoke(new TileTask(this, width, height, seed, tileEdges, 0, tileEdges.length));
+    phase.commit();
+
+    phase = GenerationPhaseEvent.start(this.name(), "carve", width, height);
+    CompactMaze maze = new CompactMaze(width, height);
+    for (long[] edges : tileEdges) {
+      for (long e : edges) {
+        maze.carve((int) (e >>> 32), (int) e);
+      }
+    }
+    phase.commit();
+
+    phase = GenerationPhaseEvent.start(this.name(), "stitch", width, height);
+    this.stitch(maze, across, down, new Random(seed));
+    phase.commit();
+    return maze;
+  }
+
+  // the edges of a random spanning tree of the given tile, each packed as the two cells
+  // it joins in the upper and lower halves of a long
+  long[] buildTile(int width, int height, long seed, int tile) {
+    int across = (width + this.tileSize - 1) / this.tileSize;
+    int left = tile % across * this.tileSize;
+    int top = tile / across * this.tileSize;
+    int tileWidth = Math.min(this.tileSize, width - left);
+    GridKruskal local = new GridKruskal(tileWidth, Math.min(this.tileSize, height - top));
+    Random tileRand = new Random(seed ^ (0x9E3779B97F4A7C15L * (tile + 1)));
+    int[] treeEdges = local.run(local.shuffledEdges(tileRand));
+
+    long[] edges = new long[treeEdges.length];
+    for (int i = 0; i < treeEdges.length; i++) {
+      int one = local.cellOne(treeEdges[i]);
+      int two = local.cellTwo(treeEdges[i]);
+      edges[i] = ((long) ((top + one / tileWidth) * width + left + one % tileWidth) << 32)
+          | ((top + two / tileWidth) * width + left + two % tileWidth);
+    }
+    return edges;
+  }
+
+  // the tile the given cell is in
+  int tileOf(int cell, int width, int across) {
+    return cell / width / this.tileSize * across + cell % width / this.tileSize;
+  }
+
+  // EFFECT: join the tiles of the maze into one tree through random boundary edges
+  void stitch(CompactMaze maze, int across, int down, Random rand) {
+    int width = maze.width;
+    // boundary edges between tiles side by side come first, row by row,
+    // then the ones between tiles above one another
+    int sideBySide = (across - 1) * maze.height;
+    int count = sideBySide + (down - 1) * width;
+    UnionFind tiles = new UnionFind(across * down);
+    int needed = across * down - 1;
+    int[] order = GridKruskal.shuffle(count, rand);
+    for (int i = 0; i < order.length && needed > 0; i++) {
+      int e = order[i];
+      int cell;
+      int other;
+      if (e < sideBySide) {
+        cell = e / (across - 1) * width + (e % (across - 1) + 1) * this.tileSize - 1;
+        other = cell + 1;
+      } else {
+        e -= sideBySide;
+        cell = ((e / width + 1) * this.tileSize - 1) * width + e % width;
+        other = cell + width;
+      }
+      if (tiles.union(this.tileOf(cell, width, across), this.tileOf(other, width, across))) {
+        maze.carve(cell, other);
+        needed--;
+      }
+    }
+  }
+}
+
+// builds the spanning trees of a range of tiles, splitting the range between threads
+class TileTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  TiledGenerator generator;
+  int width;
+  int height;
+  long seed;
+  // the edges of each tile's tree, filled in by the task for that tile
+  long[][] tileEdges;
+  int low;
+  int high;
+
+  TileTask(TiledGenerator generator, int width, int height, long seed, long[][] tileEdges,
+      int low, int high) {
+    this.generator = generator;
+    this.width = width;
+    this.height = height;
+    this.seed = seed;
+    this.tileEdges = tileEdges;
+    this.low = low;
+    this.high = high;
+  }
+
+  // EFFECT: build the trees of every tile in the range
+  protected void compute() {
+    if (this.high - this.low == 1) {
+      this.tileEdges[this.low] =
+          this.generator.buildTile(this.width, this.height, this.seed, this.low);
+    } else {
+      int middle = (this.low + this.high) / 2;
+      ForkJoinTask.invokeAll(
+          new TileTask(this.generator, this.width, this.height, this.seed, this.tileEdges,
+              this.low, middle),
+          new TileTask(this.generator, this.width, this.height, this.seed, this.tileEdges,
+              middle, this.high));
+    }
+  }
+}
+
+// generates mazes with boruvka's algorithm, where every tree picks its cheapest outgoing
+// edge in parallel each round
+// edges are weighted by their position in the same random order KruskalGenerator uses,
+// and the weights are unique, so both make the same maze from the same seed
+class BoruvkaGenerator implements IMazeGenerator {
+  ForkJoinPool pool;
+
+  BoruvkaGenerator(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  BoruvkaGenerator() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public String name() {
+    return "boruvka";
+  }
+
+  public CompactMaze generate(int width, int height, Random rand) {
+    CompactMaze.checkSize(width, height);
+    GenerationPhaseEvent phase = GenerationPhaseEvent.start(this.name(), "shuffle", width,
+        height);
+    GridKruskal grid = new GridKruskal(width, height);
+    int[] order = grid.shuffledEdges(rand);
+    int[] weights = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      weights[order[i]] = i;
+    }
+    phase.commit();
+
+    int cells = width * height;
+    ConcurrentUnionFind trees = new ConcurrentUnionFind(cells);
+    boolean[] accepted = new boolean[order.length];
+    // the tree each cell was in at the start of the round
+    int[] roots = new int[cells];
+    // the weight of the cheapest edge out of each tree, indexed by its representative
+    AtomicIntegerArray cheapest = new AtomicIntegerArray(cells);
+    int remaining = cells;
+    phase = GenerationPhaseEvent.start(this.name(), "rounds", width, height);
+    while (remaining > 1) {
+      this.pool.submit(() -> IntStream.range(0, cells).parallel().forEach(cell -> {
+        roots[cell] = trees.find(cell);
+        cheapest.set(cell, Integer.MAX_VALUE);
+      })).join();
+      this.pool.submit(() -> IntStream.range(0, cells).parallel()
+          .forEach(cell -> this.offerEdges(grid, weights, roots, cheapest, cell))).join();
+      int joined = this.pool.submit(() -> IntStream.range(0, cells).parallel()
+          .filter(cell -> cheapest.get(cell) != Integer.MAX_VALUE)
+          .map(cell -> {
+            int e = order[cheapest.get(cell)];
+            if (trees.union(grid.cellOne(e), grid.cellTwo(e))) {
+              accepted[e] = true;
+              return 1;
+            } else {
+              return 0;
+            }
+          }).sum()).join();
+      if (joined == 0) {
+        throw new IllegalArgumentException("Must have edges that connect all nodes");
+      }
+      remaining -= joined;
+    }
+    phase.commit();
+
+    phase = GenerationPhaseEvent.start(this.name(), "carve", width, height);
+    CompactMaze maze = new CompactMaze(width, height);
+    for (int e = 0; e < accepted.length; e++) {
+      if (accepted[e]) {
+        maze.carve(grid.cellOne(e), grid.cellTwo(e));
+      }
+    }
+    phase.commit();
+    return maze;
+  }
+
+  // EFFECT: lower the cheapest edge out of the cell's tree to the weight of any edge from
+  //         the cell to another tree that is cheaper
+  void offerEdges(GridKruskal grid, int[] weights, int[] roots, AtomicIntegerArray cheapest,
+      int cell) {
+    int width = grid.width;
+    int row = cell / width;
+    int col = cell % width;
+    if (col < width - 1) {
+      this.offer(weights[row * (width - 1) + col], cell, cell + 1, roots, cheapest);
+    }
+    if (col > 0) {
+      this.offer(weights[row * (width - 1) + col - 1], cell, cell - 1, roots, cheapest);
+    }
+    if (row < grid.height - 1) {
+      this.offer(weights[grid.horizontalCount() + cell], cell, cell + width, roots, cheapest);
+    }
+    if (row > 0) {
+      this.offer(weights[grid.horizontalCount() + cell - width], cell, cell - width, roots,
+          cheapest);
+    }
+  }
+
+  // EFFECT: lower the cheapest edge out of the cell's tree to the given weight if it is
+  //         cheaper and leads to a different tree
+  void offer(int weight, int cell, int other, int[] roots, AtomicIntegerArray cheapest) {
+    int tree = roots[cell];
+    if (roots[other] != tree) {
+      int current = cheapest.get(tree);
+      while (weight < current && !cheapest.compareAndSet(tree, current, weight)) {
+        current = cheapest.get(tree);
+      }
+    }
+  }
+}
@@ -0,0 +1,132 @@
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// keeps a few mazes of the game's current size and generator generated ahead of time on a
+// background thread, so a new maze can be taken at once instead of generated while the
+// game waits
+// each maze is kept with the states of its cells and its image already drawn, so taking
+// one does no work for each of its cells
+// the thread fills the pool whenever there is room and waits while it is full, and the
+// pool holds no more mazes than its depth, or than fit in its memory cap
+class MazePool {
+  IMazeGenerator generator;
+  int width;
+  int height;
+  // the most mazes the pool holds
+  int depth;
+  // the most bytes the mazes in the pool may take
+  long memoryCap;
+  // the mazes ready to take, which a new queue replaces whenever the settings change so
+  // the thread filling the old one can never add a maze of the old settings
+  LinkedBlockingQueue<PooledMaze> ready;
+  ExecutorService filler;
+  // the filling of the current queue, or null if nothing is being filled
+  Future<?> filling;
+  // the source of the seeds of the mazes, only used by the filling thread
+  Random seeds;
+  LongAdder hits;
+  LongAdder misses;
+
+  MazePool(int depth, long memoryCap, Random seeds) {
+    this.depth = depth;
+    this.memoryCap = memoryCap;
+    this.seeds = seeds;
+    this.ready = new LinkedBlockingQueue<PooledMaze>(1);
+    this.filler = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "maze-pool");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    this.filling = null;
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+  }
+
+  // the bytes one maze of the given size takes, with its walls, a byte for the state of
+  // each cell and its image
+  static long bytes(int width, int height) {
+    long cells = (long) width * height;
+    return 8 * ((cells + 31) / 32) + 64 + cells + MazeGenerator.canvasBytes(width, height);
+  }
+
+  // the most mazes of the given size the pool may hold
+  int capacity(int width, int height) {
+    return (int) Math.min(this.depth, this.memoryCap / MazePool.bytes(width, height));
+  }
+
+  // EFFECT: throw away the ready mazes and start filling the pool with mazes of the given
+  //         size from the given generator, unless none of them fit
+  synchronized void target(int width, int height, IMazeGenerator generator) {
+    this.width = width;
+    this.height = height;
+    this.generator = generator;
+    if (this.filling != null) {
+      this.filling.cancel(true);
+      this.filling = null;
+    }
+    int capacity = this.capacity(width, height);
+    this.ready = new LinkedBlockingQueue<PooledMaze>(Math.max(1, capacity));
+    if (capacity > 0) {
+      LinkedBlockingQueue<PooledMaze> queue = this.ready;
+      this.filling = this.filler.submit(() -> this.fill(queue, width, height, generator));
+    }
+  }
+
+  // EFFECT: generate mazes into the queue, waiting while it is full, until interrupted
+  void fill(LinkedBlockingQueue<PooledMaze> queue, int width, int height,
+      IMazeGenerator generator) {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        long seed = this.seeds.nextLong();
+        CompactMaze maze = generator.generate(width, height, new Random(seed));
+        byte[] states = MazeGenerator.freshStates(maze.cellCount());
+        MazeCanvas canvas = MazeGenerator.canvasFor(maze, states);
+        canvas.render();
+        queue.put(new PooledMaze(seed, maze, states, canvas));
+      }
+    } catch (InterruptedException e) {
+      // the pool was given new settings or shut down
+    }
+  }
+
+  // the next ready maze, or null if there is none and one must be generated instead
+  PooledMaze take() {
+    PooledMaze maze = this.ready.poll();
+    if (maze == null) {
+      this.misses.increment();
+    } else {
+      this.hits.increment();
+    }
+    if (Metrics.ENABLED && this.generator != null) {
+      Metrics.REGISTRY.counter(maze == null ? "maze_pool_misses_total" : "maze_pool_hits_total",
+          Metrics.label("generator", this.generator.name())).increment();
+    }
+    return maze;
+  }
+
+  // EFFECT: stop filling the pool for good
+  void shutdown() {
+    this.filler.shutdownNow();
+  }
+}
+
+// a maze generated ahead of time, with the seed it was generated from, the states of its
+// cells before it is played and its image with them drawn
+class PooledMaze {
+  long seed;
+  CompactMaze maze;
+  byte[] states;
+  MazeCanvas canvas;
+
+  PooledMaze(long seed, CompactMaze maze, byte[] states, MazeCanvas canvas) {
+    this.seed = seed;
+    this.maze = maze;
+    this.states = states;
+    this.canvas = canvas;
+  }
+}
@@ -0,0 +1,270 @@
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// counters and histograms of what generating and solving mazes costs, which can be read in
+// the program or written out in the prometheus text format
+// nothing is recorded unless the program runs with -Dmaze.metrics=true, and since ENABLED is
+// a constant every check of it is compiled away when it is false
+// a series is kept under its metric's name, a space, and its labels, so the series of one
+// metric sort next to each other
+class Metrics {
+  static final boolean ENABLED = Boolean.getBoolean("maze.metrics");
+  static final Metrics REGISTRY = new Metrics();
+
+  ConcurrentSkipListMap<String, LongAdder> counters;
+  ConcurrentSkipListMap<String, LogHistogram> histograms;
+
+  Metrics() {
+    this.counters = new ConcurrentSkipListMap<String, LongAdder>();
+    this.histograms = new ConcurrentSkipListMap<String, LogHistogram>();
+  }
+
+  // the labels of a series with one label
+  static String label(String name, String value) {
+    return name + "=\"" + value + "\"";
+  }
+
+  // the counter of the metric with the given labels, made the first time it is asked for
+  LongAdder counter(String name, String labels) {
+    return this.counters.computeIfAbsent(name + " " + labels, key -> new LongAdder());
+  }
+
+  // the histogram of the metric with the given labels, made the first time it is asked for
+  LogHistogram histogram(String name, String labels) {
+    return this.histograms.computeIfAbsent(name + " " + labels, key -> new LogHistogram());
+  }
+
+  // the count of the metric with the given labels, or 0 if nothing has been counted
+  long count(String name, String labels) {
+    LongAdder counter = this.counters.get(name + " " + labels);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  // EFFECT: record what a search of the game's cells cost once it has found the target
+  void recordSearch(String algorithm, SearchCost cost, int cameFrom) {
+    String labels = Metrics.label("algorithm", algorithm);
+    this.counter("maze_searches_total", labels).increment();
+    this.counter("maze_search_expanded_total", labels).add(cost.expanded);
+    this.counter("maze_search_stale_pops_total", labels).add(cost.stale);
+    this.histogram("maze_search_expanded", labels).record(cost.expanded);
+    this.histogram("maze_search_stale_pops", labels).record(cost.stale);
+    this.histogram("maze_search_peak_worklist", labels).record(cost.peakWorklist);
+    this.histogram("maze_search_came_from", labels).record(cameFrom);
+    this.histogram("maze_search_nanos", labels).record(cost.nanos);
+  }
+
+  // EFFECT: record one run of a cell solver
+  void recordSolve(String algorithm, int expanded, long nanos, boolean solved) {
+    String labels = Metrics.label("algorithm", algorithm);
+    this.counter("maze_solves_total", labels).increment();
+    if (!solved) {
+      this.counter("maze_solves_failed_total", labels).increment();
+    }
+    this.histogram("maze_solve_expanded", labels).record(expanded);
+    this.histogram("maze_solve_nanos", labels).record(nanos);
+  }
+
+  // EFFECT: record the time one phase of generating a maze took
+  void recordPhase(String generator, String phase, long nanos) {
+    this.histogram("maze_generate_phase_nanos",
+        Metrics.label("generator", generator) + "," + Metrics.label("phase", phase))
+        .record(nanos);
+  }
+
+  // EFFECT: write every counter and histogram in the prometheus text format
+  void writePrometheus(Writer out) throws IOException {
+    String family = null;
+    for (Map.Entry<String, LongAdder> e : this.counters.entrySet()) {
+      String name = e.getKey().substring(0, e.getKey().indexOf(' '));
+      if (!name.equals(family)) {
+        out.write("# TYPE " + name + " counter\n");
+        family = name;
+      }
+      out.write(Metrics.series(e.getKey(), "", "") + " " + e.getValue().sum() + "\n");
+    }
+    for (Map.Entry<String, LogHistogram> e : this.histograms.entrySet()) {
+      String name = e.getKey().substring(0, e.getKey().indexOf(' '));
+      if (!name.equals(family)) {
+        out.write("# TYPE " + name + " histogram\n");
+        family = name;
+      }
+      LogHistogram h = e.getValue();
+      long count = h.count();
+      long below = 0;
+      for (int i = 0; i < LogHistogram.BUCKETS && below < count; i++) {
+        long inBucket = h.buckets.get(i);
+        if (inBucket != 0) {
+          below += inBucket;
+          out.write(Metrics.series(e.getKey(), "_bucket",
+              Metrics.label("le", Long.toString(LogHistogram.upper(i) - 1))) + " " + below
+              + "\n");
+        }
+      }
+      out.write(Metrics.series(e.getKey(), "_bucket", Metrics.label("le", "+Inf")) + " "
+          + count + "\n");
+      out.write(Metrics.series(e.getKey(), "_sum", "") + " " + h.sum() + "\n");
+      out.write(Metrics.series(e.getKey(), "_count", "") + " " + count + "\n");
+    }
+  }
+
+  // a prometheus series for the key of a counter or histogram, with the suffix added to
+  // its name and the extra label added to its labels
+  static String series(String key, String suffix, String extra) {
+    int space = key.indexOf(' ');
+    String labels = key.substring(space + 1);
+    if (!extra.isEmpty()) {
+      labels = labels.isEmpty() ? extra : labels + "," + extra;
+    }
+    return key.substring(0, space) + suffix + (labels.isEmpty() ? "" : "{" + labels + "}");
+  }
+
+  // everything in the prometheus text format
+  String prometheus() {
+    StringWriter out = new StringWriter();
+    try {
+      this.writePrometheus(out);
+    } catch (IOException e) {
+      throw new IllegalStateException("A string writer cannot fail", e);
+    }
+    return out.toString();
+  }
+
+  // EFFECT: write everything in the prometheus text format to the file
+  void dump(Path file) throws IOException {
+    Files.write(file, this.prometheus().getBytes(StandardCharsets.UTF_8));
+  }
+
+  // EFFECT: start serving everything in the prometheus text format at /metrics on the
+  //         given port of this machine only, until the returned server is stopped
+  HttpServer serve(int port) throws IOException {
+    HttpServer server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/metrics", exchange -> {
+      byte[] body = this.prometheus().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.setExecutor(null);
+    server.start();
+    return server;
+  }
+}
+
+// a histogram of non-negative longs in buckets whose width grows with the values in them,
+// like an hdr histogram: values below 16 each have their own bucket, and every doubling
+// above that is split into 8 buckets, so a bucket is never more than an eighth of its
+// lowest value wide and every long fits in 488 buckets
+class LogHistogram {
+  static final int SUB_BITS = 3;
+  static final int SUB_BUCKETS = 1 << SUB_BITS;
+  static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+  AtomicLongArray buckets;
+  LongAdder sum;
+  LongAccumulator max;
+
+  LogHistogram() {
+    this.buckets = new AtomicLongArray(BUCKETS);
+    this.sum = new LongAdder();
+    this.max = new LongAccumulator(Math::max, 0);
+  }
+
+  // the bucket a value falls in
+  static int bucket(long value) {
+    if (value < 2 * SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  // the smallest value in the bucket
+  static long lower(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+  }
+
+  // one more than the largest value in the bucket, or Long.MAX_VALUE for the last bucket
+  static long upper(int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : LogHistogram.lower(bucket + 1);
+  }
+
+  // EFFECT: count the value, or 0 if it is negative
+  void record(long value) {
+    value = Math.max(0, value);
+    this.buckets.incrementAndGet(LogHistogram.bucket(value));
+    this.sum.add(value);
+    this.max.accumulate(value);
+  }
+
+  // the number of values recorded
+  long count() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += this.buckets.get(i);
+    }
+    return count;
+  }
+
+  // the total of the values recorded
+  long sum() {
+    return this.sum.sum();
+  }
+
+  // the largest value recorded, or 0 if there are none
+  long max() {
+    return this.max.get();
+  }
+
+  // a value that at least the given fraction of the values recorded are no more than,
+  // within the width of its bucket, or 0 if there are none
+  long percentile(double fraction) {
+    long count = this.count();
+    long rank = Math.max(1, (long) Math.ceil(fraction * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS && count > 0; i++) {
+      seen += this.buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(LogHistogram.upper(i) - 1, this.max());
+      }
+    }
+    return 0;
+  }
+}
+
+// what one search of the game's cells has cost so far
+class SearchCost {
+  // the time spent in the search's steps
+  long nanos;
+  // the cells taken off the worklist that had not been expanded before
+  int expanded;
+  // the cells taken off the worklist that had already been expanded
+  int stale;
+  int peakWorklist;
+
+  SearchCost() {
+    this.nanos = 0;
+    this.expanded = 0;
+    this.stale = 0;
+    this.peakWorklist = 0;
+  }
+}
@@ -1,11 +1,19 @@
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.PriorityQueue;
 
 // represents an abstract sorting algorithm which can step through the sort.
+// all of the search's state lives here, so the nodes are never changed by a search
 abstract class SearchAlg {
   ArrayDeque<Node> worklist;
   HashMap<Node, Node> cameFromNode;
+  // the nodes this search has expanded
+  HashSet<Node> seen;
+  // the nodes on the solution from the target back to the start, once it is found
+  ArrayList<Node> path;
   Node from;
   Node to;
   boolean solved = false;
@@ -17,6 +25,8 @@ abstract class SearchAlg {
     this.worklist.add(from);
     this.cameFromNode = new HashMap<Node, Node>();
     this.cameFromNode.put(from, from);
+    this.seen = new HashSet<Node>();
+    this.path = new ArrayList<Node>();
   }
   
   // add the node to the worklist
@@ -41,27 +51,28 @@ abstract class SearchAlg {
     if (next.equals(this.to)) {
       this.trace(next);
       return next;
-    } else if (next.seen) {
+    } else if (this.seen.contains(next)) {
       return next;
     } else {
       for (Node n : next.pathTo) {
-        if (!n.seen) {
+        if (!this.seen.contains(n)) {
           this.cameFromNode.put(n, next);
           this.addToWorklist(n);
         }
       }
-      next.seen = true;
+      this.seen.add(next);
       return next;
     }
   }
   
-  // EFFECT: change the state of all nodes in the path to solved
+  // EFFECT: record the nodes on the path from the given node back to the start
   void trace(Node last) {
     this.solved = true;
-    last.setState(1);
+    this.path = new ArrayList<Node>();
+    this.path.add(last);
     while (!last.equals(this.cameFromNode.get(last))) {
       last = this.cameFromNode.get(last);
-      last.setState(1);
+      this.path.add(last);
     }
   }
 }
@@ -146,3 +157,85 @@ class AStar extends SearchAlg {
     return this.worklist.isEmpty();
   }
 }
+
+// a search that grows one search forward from the start and another backward from the
+// target, taking turns, until one of them expands a node the other has reached
+class Bidirectional extends SearchAlg {
+  SearchAlg forward;
+  SearchAlg backward;
+  boolean forwardTurn;
+  // the node where the two searches met, once they have
+  Node meeting;
+  
+  Bidirectional(SearchAlg forward, SearchAlg backward) {
+    super(forward.from, forward.to);
+    this.forward = forward;
+    this.backward = backward;
+    this.forwardTurn = true;
+  }
+  
+  @Override
+  // add the node to the worklist of the forward search
+  void addToWorklist(Node n) {
+    this.forward.addToWorklist(n);
+  }
+  
+  @Override
+  // remove the next node from the worklist of the forward search
+  Node removeFromWorklist() {
+    return this.forward.removeFromWorklist();
+  }
+  
+  @Override
+  // are both worklists empty
+  boolean emptyWorklist() {
+    return this.forward.emptyWorklist() && this.backward.emptyWorklist();
+  }
+  
+  @Override
+  // returns the node expanded by this step, or the target once the searches have met
+  // EFFECT: progress whichever search's turn it is by one step
+  Node next() {
+    if (this.solved || this.emptyWorklist()) {
+      return this.to;
+    }
+    SearchAlg side;
+    SearchAlg other;
+    if ((this.forwardTurn && !this.forward.emptyWorklist()) || this.backward.emptyWorklist()) {
+      side = this.forward;
+      other = this.backward;
+    } else {
+      side = this.backward;
+      other = this.forward;
+    }
+    this.forwardTurn = !this.forwardTurn;
+    
+    Node next = side.next();
+    if (other.cameFromNode.containsKey(next)) {
+      this.meeting = next;
+      this.trace(this.to);
+      return this.to;
+    }
+    return next;
+  }
+  
+  @Override
+  // EFFECT: record the nodes on the path from the target back to the start,
+  //         joined where the two searches met
+  void trace(Node last) {
+    this.solved = true;
+    this.path = new ArrayList<Node>();
+    Node n = this.meeting;
+    while (!n.equals(this.backward.cameFromNode.get(n))) {
+      n = this.backward.cameFromNode.get(n);
+      this.path.add(n);
+    }
+    Collections.reverse(this.path);
+    n = this.meeting;
+    this.path.add(n);
+    while (!n.equals(this.forward.cameFromNode.get(n))) {
+      n = this.forward.cameFromNode.get(n);
+      this.path.add(n);
+    }
+  }
+}
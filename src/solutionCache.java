@@ -0,0 +1,193 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// the paths found on mazes already solved, so solving a known maze between the same two
+// cells again takes the path instead of searching
+// a maze is known by a hash of its size and walls, so the same maze hits however it was
+// made, generated or opened from a file, and a perfect maze has only one path between two
+// cells, so the path any solver found answers every solver
+// paths are kept packed two bits a move, and the least recently used are thrown away once
+// they take more than the cache's bytes
+class SolutionCache {
+  // the bytes an entry takes on top of its packed moves
+  static final int ENTRY_BYTES = 96;
+
+  long maxBytes;
+  long bytes;
+  // the entries from least to most recently used
+  LinkedHashMap<SolutionKey, CachedPath> entries;
+  long hits;
+  long misses;
+
+  SolutionCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.bytes = 0;
+    this.entries = new LinkedHashMap<SolutionKey, CachedPath>(16, 0.75f, true);
+    this.hits = 0;
+    this.misses = 0;
+  }
+
+  // a hash of the maze's size and walls
+  static long fingerprint(IMaze maze) {
+    long hash = SolutionCache.mix(((long) maze.width() << 32) | maze.height());
+    int words = (int) ((maze.cellCount() + 31L) / 32);
+    for (int word = 0; word < words; word++) {
+      hash = SolutionCache.mix(hash ^ MazeFile.wallWord(maze, word));
+    }
+    return hash;
+  }
+
+  // the bits of the value spread over the whole long
+  static long mix(long value) {
+    value *= 0x9E3779B97F4A7C15L;
+    return value ^ (value >>> 32);
+  }
+
+  // the cells on the path from one cell to another of the maze, which has the given
+  // fingerprint, or null if it is not in the cache
+  // a path kept in one direction answers the other as well
+  // a path that does not follow the maze's walls, which only a fingerprint shared with
+  // another maze could give, is thrown away and counted as a miss
+  synchronized int[] get(IMaze maze, long fingerprint, int from, int to) {
+    int width = maze.width();
+    SolutionKey key = new SolutionKey(fingerprint, width, from, to);
+    CachedPath cached = this.entries.get(key);
+    int[] path = cached == null ? null
+        : PathCodec.decode(Math.min(from, to), cached.steps, cached.moves, width);
+    if (path != null && !SolutionCache.follows(maze, path, Math.min(from, to),
+        Math.max(from, to))) {
+      this.entries.remove(key);
+      this.bytes -= cached.bytes();
+      path = null;
+    }
+    if (path == null) {
+      this.misses++;
+      this.count("maze_solution_cache_misses_total");
+      return null;
+    }
+    this.hits++;
+    this.count("maze_solution_cache_hits_total");
+    if (from > to) {
+      for (int i = 0, j = path.length - 1; i < j; i++, j--) {
+        int cell = path[i];
+        path[i] = path[j];
+        path[j] = cell;
+      }
+    }
+    return path;
+  }
+
+  // does the path run from one cell to the other of the maze, each step to a neighbor
+  // with no wall between them
+  static boolean follows(IMaze maze, int[] path, int from, int to) {
+    if (path.length == 0 || path[0] != from || path[path.length - 1] != to) {
+      return false;
+    }
+    int width = maze.width();
+    for (int i = 1; i < path.length; i++) {
+      int low = Math.min(path[i - 1], path[i]);
+      int high = Math.max(path[i - 1], path[i]);
+      if (low < 0 || high >= maze.cellCount()) {
+        return false;
+      }
+      boolean open = high == low + 1 ? maze.openRight(low)
+          : high == low + width && maze.openDown(low);
+      if (!open) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // EFFECT: keep the path from its first cell to its last on the maze with the given
+  //         fingerprint, throwing away the least recently used paths until the cache fits
+  //         in its bytes, unless the path alone would not fit
+  synchronized void put(long fingerprint, int width, int[] path) {
+    int from = path[0];
+    int to = path[path.length - 1];
+    if (from > to) {
+      int[] forward = new int[path.length];
+      for (int i = 0; i < path.length; i++) {
+        forward[i] = path[path.length - 1 - i];
+      }
+      path = forward;
+    }
+    CachedPath cached = new CachedPath(path.length - 1, PathCodec.encode(path, width));
+    if (cached.bytes() > this.maxBytes) {
+      return;
+    }
+    CachedPath old = this.entries.put(new SolutionKey(fingerprint, width, from, to), cached);
+    this.bytes += cached.bytes() - (old == null ? 0 : old.bytes());
+    Iterator<Map.Entry<SolutionKey, CachedPath>> eldest = this.entries.entrySet().iterator();
+    while (this.bytes > this.maxBytes) {
+      this.bytes -= eldest.next().getValue().bytes();
+      eldest.remove();
+      this.count("maze_solution_cache_evictions_total");
+    }
+  }
+
+  // EFFECT: keep the solution saved with the maze, if it has one
+  void putSaved(MappedMaze maze, long fingerprint) {
+    int[] solution = maze.solution();
+    if (solution != null) {
+      this.put(fingerprint, maze.width, solution);
+    }
+  }
+
+  // the number of paths in the cache
+  synchronized int size() {
+    return this.entries.size();
+  }
+
+  // EFFECT: count one more of the given metric, if metrics are on
+  void count(String name) {
+    if (Metrics.ENABLED) {
+      Metrics.REGISTRY.counter(name, "").increment();
+    }
+  }
+}
+
+// the maze and the two cells a cached path joins, lower cell first
+class SolutionKey {
+  long fingerprint;
+  int width;
+  int low;
+  int high;
+
+  SolutionKey(long fingerprint, int width, int from, int to) {
+    this.fingerprint = fingerprint;
+    this.width = width;
+    this.low = Math.min(from, to);
+    this.high = Math.max(from, to);
+  }
+
+  public int hashCode() {
+    return Long.hashCode(this.fingerprint) * 31 + this.low * 17 + this.high;
+  }
+
+  public boolean equals(Object other) {
+    if (!(other instanceof SolutionKey)) {
+      return false;
+    }
+    SolutionKey key = (SolutionKey) other;
+    return this.fingerprint == key.fingerprint && this.width == key.width
+        && this.low == key.low && this.high == key.high;
+  }
+}
+
+// a path kept in the cache as its number of steps and its moves packed by PathCodec
+class CachedPath {
+  int steps;
+  byte[] moves;
+
+  CachedPath(int steps, byte[] moves) {
+    this.steps = steps;
+    this.moves = moves;
+  }
+
+  // the bytes the entry of this path takes
+  long bytes() {
+    return this.moves.length + SolutionCache.ENTRY_BYTES;
+  }
+}
@@ -0,0 +1,113 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// a solver that runs several solvers on the same maze at once, each on its own thread,
+// and takes the path of whichever finds one first, cancelling the rest, which stop at
+// their next step
+// the solvers only read the maze, so they can share it, and which one wins is kept so the
+// default solver can be tuned from how often each wins
+class RaceSolver implements ICellSolver {
+  // every solver that runs on one thread
+  static final String[] ALL = {"bfs", "dfs", "astar", "bibfs", "biastar", "junction",
+      "junction-astar", "tree"};
+  // daemon threads kept between races, so a race never keeps the program running and
+  // later races do not pay to start threads
+  static final ExecutorService POOL = Executors.newCachedThreadPool(task -> {
+    Thread thread = new Thread(task, "maze-race");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  IMaze maze;
+  int from;
+  int to;
+  String[] algorithms;
+  ExecutorService pool;
+  // the solver of each algorithm, once its thread has made it
+  AtomicReferenceArray<ICellSolver> solvers;
+  // set once the race is asked to stop, from any thread
+  volatile boolean cancelled;
+  // the algorithm that found the path, or null if none has
+  String winner;
+  int expanded;
+
+  RaceSolver(IMaze maze, int from, int to, String[] algorithms, ExecutorService pool) {
+    this.maze = maze;
+    this.from = from;
+    this.to = to;
+    this.algorithms = algorithms;
+    this.pool = pool;
+    this.solvers = new AtomicReferenceArray<ICellSolver>(algorithms.length);
+    this.cancelled = false;
+    this.winner = null;
+    this.expanded = 0;
+  }
+
+  RaceSolver(IMaze maze, int from, int to) {
+    this(maze, from, to, ALL, POOL);
+  }
+
+  // the path the first solver to finish with one found, or null if none of them found one
+  // a solver that fails to run drops out of the race
+  public int[] solve() {
+    ExecutorCompletionService<Integer> finished = new ExecutorCompletionService<Integer>(
+        this.pool);
+    int[][] paths = new int[this.algorithms.length][];
+    for (int i = 0; i < this.algorithms.length; i++) {
+      int entry = i;
+      finished.submit(() -> {
+        ICellSolver solver = Runner.makeSolver(this.algorithms[entry], this.maze, this.from,
+            this.to);
+        this.solvers.set(entry, solver);
+        // a race cancelled while this solver was being made could have missed it
+        if (this.cancelled) {
+          solver.cancel();
+        }
+        paths[entry] = solver.solve();
+        return entry;
+      });
+    }
+
+    int[] path = null;
+    try {
+      for (int i = 0; i < this.algorithms.length && path == null; i++) {
+        try {
+          int entry = finished.take().get();
+          if (paths[entry] != null) {
+            path = paths[entry];
+            this.winner = this.algorithms[entry];
+            this.expanded = this.solvers.get(entry).expanded();
+          }
+        } catch (ExecutionException e) {
+          // the solver could not run on this maze, which leaves the others racing
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    this.cancel();
+    if (Metrics.ENABLED && this.winner != null) {
+      Metrics.REGISTRY.counter("maze_race_wins_total", Metrics.label("algorithm",
+          this.winner)).increment();
+    }
+    return path;
+  }
+
+  // the number of cells the winner expanded, or 0 if there is none
+  public int expanded() {
+    return this.expanded;
+  }
+
+  public void cancel() {
+    this.cancelled = true;
+    for (int i = 0; i < this.solvers.length(); i++) {
+      ICellSolver solver = this.solvers.get(i);
+      if (solver != null) {
+        solver.cancel();
+      }
+    }
+  }
+}
@@ -0,0 +1,165 @@
+// answers path queries between any two cells of a maze that is a spanning tree, where the
+// path between two cells is unique and runs up from each of them to their lowest common
+// ancestor once the tree is rooted at cell 0
+// besides its parent, each cell keeps one jump pointer to a further ancestor, with the
+// jumps sized like the digits of a skew binary number, so finding the common ancestor takes
+// O(log n) steps while the whole structure stays at three ints per cell
+class MazeTree {
+  IMaze maze;
+  // the parent of each cell, where the root is its own parent
+  int[] parents;
+  // the number of steps from each cell to the root
+  int[] depths;
+  // an ancestor of each cell further up than its parent, or the root
+  int[] jumps;
+
+  MazeTree(IMaze maze) {
+    this.maze = maze;
+    int count = maze.cellCount();
+    int passages = 0;
+    for (int cell = 0; cell < count; cell++) {
+      if (maze.openRight(cell)) {
+        passages++;
+      }
+      if (maze.openDown(cell)) {
+        passages++;
+      }
+    }
+    if (count == 0 || passages != count - 1) {
+      throw new IllegalArgumentException("The maze is not a spanning tree");
+    }
+
+    this.parents = new int[count];
+    this.depths = new int[count];
+    this.jumps = new int[count];
+    // every cell is visited from its parent in breadth first order, so a cell's parent
+    // always has its jump before the cell needs it
+    int[] order = new int[count];
+    int[] neighbors = new int[4];
+    int visited = 1;
+    for (int i = 0; i < visited; i++) {
+      int cell = order[i];
+      int n = maze.neighbors(cell, neighbors);
+      for (int j = 0; j < n; j++) {
+        int child = neighbors[j];
+        if (child != this.parents[cell]) {
+          // a tree with one fewer passage than cells that visits too many has a loop
+          if (visited == count) {
+            throw new IllegalArgumentException("The maze is not a spanning tree");
+          }
+          this.add(child, cell);
+          order[visited] = child;
+          visited++;
+        }
+      }
+    }
+    if (visited != count) {
+      throw new IllegalArgumentException("The maze is not a spanning tree");
+    }
+  }
+
+  // EFFECT: record the cell as a child of the parent and pick its jump, which skips over
+  //         the parent's next two jumps when they are the same length, or else is the parent
+  void add(int cell, int parent) {
+    this.parents[cell] = parent;
+    this.depths[cell] = this.depths[parent] + 1;
+    int up = this.jumps[parent];
+    if (this.depths[parent] - this.depths[up]
+        == this.depths[up] - this.depths[this.jumps[up]]) {
+      this.jumps[cell] = this.jumps[up];
+    } else {
+      this.jumps[cell] = parent;
+    }
+  }
+
+  // the ancestor of the cell at the given depth
+  int ancestor(int cell, int depth) {
+    while (this.depths[cell] > depth) {
+      if (this.depths[this.jumps[cell]] >= depth) {
+        cell = this.jumps[cell];
+      } else {
+        cell = this.parents[cell];
+      }
+    }
+    return cell;
+  }
+
+  // the deepest cell that is an ancestor of both cells
+  int commonAncestor(int a, int b) {
+    if (this.depths[a] > this.depths[b]) {
+      a = this.ancestor(a, this.depths[b]);
+    } else {
+      b = this.ancestor(b, this.depths[a]);
+    }
+    // two cells at the same depth have jumps to the same depth
+    while (a != b) {
+      if (this.jumps[a] != this.jumps[b]) {
+        a = this.jumps[a];
+        b = this.jumps[b];
+      } else {
+        a = this.parents[a];
+        b = this.parents[b];
+      }
+    }
+    return a;
+  }
+
+  // the number of steps on the path between two cells
+  int distance(int a, int b) {
+    return this.depths[a] + this.depths[b] - 2 * this.depths[this.commonAncestor(a, b)];
+  }
+
+  // the cells on the path from a to b
+  int[] path(int a, int b) {
+    int top = this.commonAncestor(a, b);
+    int up = this.depths[a] - this.depths[top];
+    int[] path = new int[up + this.depths[b] - this.depths[top] + 1];
+    for (int i = 0; i <= up; i++) {
+      path[i] = a;
+      a = this.parents[a];
+    }
+    for (int i = path.length - 1; i > up; i--) {
+      path[i] = b;
+      b = this.parents[b];
+    }
+    return path;
+  }
+}
+
+// a solver that looks the path up in a rooted tree instead of searching for it
+class TreeSolver implements ICellSolver {
+  MazeTree tree;
+  int from;
+  int to;
+  int expanded;
+  // set once the solver is asked to stop, from any thread
+  volatile boolean cancelled;
+
+  TreeSolver(MazeTree tree, int from, int to) {
+    this.tree = tree;
+    this.from = from;
+    this.to = to;
+    this.expanded = 0;
+    this.cancelled = false;
+  }
+
+  // the path between the cells, where the only cells it visits are the ones on the path
+  // a lookup is over too quickly to stop partway, so only a solver cancelled before it
+  // starts returns null
+  public int[] solve() {
+    if (this.cancelled) {
+      return null;
+    }
+    int[] path = this.tree.path(this.from, this.to);
+    this.expanded = path.length;
+    return path;
+  }
+
+  public int expanded() {
+    return this.expanded;
+  }
+
+  public void cancel() {
+    this.cancelled = true;
+  }
+}
@@ -0,0 +1,169 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// union/find over cells identified by their dense index (row * width + col),
+// using path halving and union by rank
+class UnionFind {
+  int[] parent;
+  int[] rank;
+
+  UnionFind(int size) {
+    this.parent = new int[size];
+    this.rank = new int[size];
+    for (int i = 0; i < size; i++) {
+      this.parent[i] = i;
+    }
+  }
+
+  // get the representative of the given cell
+  // EFFECT: shortens the path from the cell to its representative
+  int find(int cell) {
+    while (this.parent[cell] != cell) {
+      this.parent[cell] = this.parent[this.parent[cell]];
+      cell = this.parent[cell];
+    }
+    return cell;
+  }
+
+  // join the trees of the two cells, returning false if they were already joined
+  // EFFECT: the two cells share a representative
+  boolean union(int a, int b) {
+    int repA = this.find(a);
+    int repB = this.find(b);
+    if (repA == repB) {
+      return false;
+    }
+    if (this.rank[repA] < this.rank[repB]) {
+      this.parent[repA] = repB;
+    } else if (this.rank[repA] > this.rank[repB]) {
+      this.parent[repB] = repA;
+    } else {
+      this.parent[repB] = repA;
+      this.rank[repA]++;
+    }
+    return true;
+  }
+}
+
+// kruskal's algorithm over a grid of cells, stopping once the cells form a single tree
+// edges are identified by dense ids: the horizontal edges row by row, then the vertical ones
+class GridKruskal {
+  int width;
+  int height;
+  UnionFind sets;
+
+  GridKruskal(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.sets = new UnionFind(width * height);
+  }
+
+  // the number of edges between adjacent cells of the grid
+  int edgeCount() {
+    return 2 * this.width * this.height - this.width - this.height;
+  }
+
+  // the number of edges joining horizontally adjacent cells
+  int horizontalCount() {
+    return this.height * (this.width - 1);
+  }
+
+  // the cell at the top or left end of the given edge
+  int cellOne(int edge) {
+    if (edge < this.horizontalCount()) {
+      return edge / (this.width - 1) * this.width + edge % (this.width - 1);
+    } else {
+      return edge - this.horizontalCount();
+    }
+  }
+
+  // the cell at the bottom or right end of the given edge
+  int cellTwo(int edge) {
+    if (edge < this.horizontalCount()) {
+      return this.cellOne(edge) + 1;
+    } else {
+      return this.cellOne(edge) + this.width;
+    }
+  }
+
+  // a random order to process every edge in, replacing sorting edges by random weights
+  int[] shuffledEdges(Random rand) {
+    return GridKruskal.shuffle(this.edgeCount(), rand);
+  }
+
+  // a random permutation of the numbers from 0 to count - 1
+  static int[] shuffle(int count, Random rand) {
+    int[] order = new int[count];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    for (int i = order.length - 1; i > 0; i--) {
+      int j = rand.nextInt(i + 1);
+      int temp = order[i];
+      order[i] = order[j];
+      order[j] = temp;
+    }
+    return order;
+  }
+
+  // accept the edges in the given order until every cell is in one tree
+  int[] run(int[] order) {
+    int needed = this.width * this.height - 1;
+    int[] treeEdges = new int[needed];
+    int accepted = 0;
+    for (int i = 0; i < order.length && accepted < needed; i++) {
+      if (this.sets.union(this.cellOne(order[i]), this.cellTwo(order[i]))) {
+        treeEdges[accepted] = order[i];
+        accepted++;
+      }
+    }
+
+    if (accepted < needed) {
+      throw new IllegalArgumentException("Must have edges that connect all nodes");
+    }
+    return treeEdges;
+  }
+}
+
+// union/find over dense cell indices that many threads can use at once,
+// always linking the higher representative under the lower one
+class ConcurrentUnionFind {
+  AtomicIntegerArray parent;
+
+  ConcurrentUnionFind(int size) {
+    this.parent = new AtomicIntegerArray(size);
+    for (int i = 0; i < size; i++) {
+      this.parent.set(i, i);
+    }
+  }
+
+  // get the representative of the given cell
+  // EFFECT: shortens the path from the cell to its representative
+  int find(int cell) {
+    int next = this.parent.get(cell);
+    while (next != cell) {
+      int after = this.parent.get(next);
+      this.parent.compareAndSet(cell, next, after);
+      cell = next;
+      next = after;
+    }
+    return cell;
+  }
+
+  // join the trees of the two cells, returning false if they were already joined
+  // EFFECT: the two cells share a representative
+  boolean union(int a, int b) {
+    while (true) {
+      int repA = this.find(a);
+      int repB = this.find(b);
+      if (repA == repB) {
+        return false;
+      }
+      int low = Math.min(repA, repB);
+      int high = Math.max(repA, repB);
+      if (this.parent.compareAndSet(high, high, low)) {
+        return true;
+      }
+    }
+  }
+}